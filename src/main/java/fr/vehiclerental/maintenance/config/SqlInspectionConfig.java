@@ -0,0 +1,55 @@
+package fr.vehiclerental.maintenance.config;
+
+import fr.vehiclerental.maintenance.diagnostic.InspectingDataSource;
+import fr.vehiclerental.maintenance.diagnostic.SqlInspectionFilter;
+import fr.vehiclerental.maintenance.diagnostic.SqlStatistics;
+import fr.vehiclerental.maintenance.diagnostic.SqlStatisticsEndpoint;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "sql.inspection.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlInspectionConfig {
+
+    @Bean
+    public SqlStatistics sqlStatistics(@Value("${sql.inspection.slow-threshold-ms:200}") long slowThresholdMillis,
+                                       @Value("${sql.inspection.n-plus-one-threshold:10}") int nPlusOneThreshold,
+                                       @Value("${sql.inspection.max-captured:100}") int maxCaptured) {
+        return new SqlStatistics(slowThresholdMillis, nPlusOneThreshold, maxCaptured);
+    }
+
+    @Bean
+    public SqlInspectionFilter sqlInspectionFilter(SqlStatistics sqlStatistics) {
+        return new SqlInspectionFilter(sqlStatistics);
+    }
+
+    @Bean
+    public SqlStatisticsEndpoint sqlStatisticsEndpoint(SqlStatistics sqlStatistics) {
+        return new SqlStatisticsEndpoint(sqlStatistics);
+    }
+
+    /**
+     * Enveloppe le DataSource du pool pour mesurer les requêtes SQL
+     *
+     * @param sqlStatistics statistiques, résolues seulement à la création du DataSource
+     * @return post-processeur
+     */
+    @Bean
+    public static BeanPostProcessor inspectingDataSourcePostProcessor(ObjectProvider<SqlStatistics> sqlStatistics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof InspectingDataSource)) {
+                    return new InspectingDataSource(dataSource, sqlStatistics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package fr.vehiclerental.maintenance.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ThreadingConfig {
+
+    /**
+     * Exécuteur des appels vers les autres api (Vehicle, Unavailability, Reservation).
+     * En mode virtual threads chaque appel bloquant a son propre thread virtuel,
+     * sinon on garde un pool fixe de threads plateforme.
+     *
+     * @param virtualThreads Mode virtual threads activé ou non
+     * @param poolSize       Taille du pool en mode plateforme
+     * @return Exécuteur
+     */
+    @Bean(name = "downstreamExecutor", destroyMethod = "shutdown")
+    public ExecutorService downstreamExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                              @Value("${downstream.platform-pool-size:32}") int poolSize) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("downstream-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(poolSize, Thread.ofPlatform().name("downstream-", 0).factory());
+    }
+}
@@ -1,5 +1,7 @@
 package fr.vehiclerental.maintenance.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.vehiclerental.maintenance.entity.*;
 import fr.vehiclerental.maintenance.exception.*;
 import fr.vehiclerental.maintenance.service.MaintenanceService;
@@ -10,20 +12,28 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
 public class WebAppController {
     private final MaintenanceService maintenanceService;
+    private final ObjectMapper objectMapper;
 
-    public WebAppController(MaintenanceService maintenanceService) {
+    public WebAppController(MaintenanceService maintenanceService, ObjectMapper objectMapper) {
         this.maintenanceService = maintenanceService;
+        this.objectMapper = objectMapper;
     }
 
     @Operation(summary = "Home page")
@@ -140,5 +150,92 @@ public class WebAppController {
     public List<Maintenance> getMaintenanceVehicleId(@Parameter(description = "Identifiant du vehicule", required = true) @PathVariable(value = "id") int idVehicle) {
         return maintenanceService.maintenancesWithVehicle(idVehicle);
     }
-}
 
+    @Operation(summary = "Voir les maintenances de plusieurs véhicules de la base de données", description = "Requête pour la récupération des maintenances d'une liste de véhicules, groupées par identifiant de véhicule")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Opération réussi", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\n" + "  \"1\": [{\"id\": 3, \"idVehicle\": 1, \"idUnavailability\": 2}],\n" + "  \"2\": []\n" + "}")))})
+    @PostMapping("/maintenance/vehicles")
+    public void getMaintenanceVehicleIds(@Parameter(description = "Identifiants des véhicules", required = true) @RequestBody Set<Integer> idVehicles, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        // Rien n'est écrit avant le premier lot : si sa requête échoue, la réponse garde un vrai statut d'erreur
+        AtomicReference<JsonGenerator> generator = new AtomicReference<>();
+        try {
+            maintenanceService.maintenancesWithVehicles(idVehicles, chunk -> {
+                try {
+                    if (generator.get() == null) {
+                        generator.set(this.startBulkResponse(response));
+                    }
+                    for (Map.Entry<Integer, List<Maintenance>> entry : chunk.entrySet()) {
+                        generator.get().writeFieldName(String.valueOf(entry.getKey()));
+                        generator.get().writeObject(entry.getValue());
+                    }
+                    generator.get().flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (generator.get() == null) {
+                generator.set(this.startBulkResponse(response));
+            }
+            generator.get().writeEndObject();
+        } finally {
+            if (generator.get() != null) {
+                generator.get().close();
+            }
+        }
+    }
+
+    /**
+     * Méthode pour ouvrir l'objet JSON de la réponse groupée
+     *
+     * @param response réponse HTTP
+     * @return générateur positionné dans l'objet
+     * @throws IOException si l'écriture échoue
+     */
+    private JsonGenerator startBulkResponse(HttpServletResponse response) throws IOException {
+        JsonGenerator generator = objectMapper.createGenerator(response.getOutputStream());
+        // Si un lot échoue en cours de route, le JSON doit rester incomplet plutôt que d'être refermé proprement
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        generator.writeStartObject();
+        return generator;
+    }
+
+    @Operation(summary = "Changer le statut d'une maintenance", description = "Requête pour faire avancer une maintenance : SCHEDULED, IN_PROGRESS puis COMPLETED")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Opération réussi", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\n" + "    \"success\": true,\n" + "    \"message\": \"Le statut de votre maintenance a été modifié !\"\n" + "}"))), @ApiResponse(responseCode = "405", description = "Échec de l'opération ", content = @Content(mediaType = "application/json", examples = {@ExampleObject(name = "Erreur générale", value = "{\n" + "  \"localDateTime\": \"2025-11-03T08:25:00\",\n" + "  \"message\": \"Passage du statut COMPLETED à SCHEDULED non autorisé.\",\n" + "  \"status\": 404\n" + "}")}))})
+    @PutMapping("/maintenance/{id}/status")
+    public ResponseEntity<Map<String, Object>> changeMaintenanceStatus(
+            @Parameter(description = "Identifiant de la maintenance", required = true) @PathVariable(value = "id") int idMaintenance,
+            @Parameter(description = "Nouveau statut", required = true) @RequestParam(value = "status") MaintenanceStatus status) {
+        return ResponseEntity.ok(maintenanceService.changeStatusService(idMaintenance, status));
+    }
+
+    @Operation(summary = "Voir l'historique des maintenances archivées", description = "Requête pour la récupération des maintenances terminées et archivées, des plus récentes aux plus anciennes")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Opération réussi", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MaintenanceArchive.class)))})
+    @GetMapping("/maintenance/history")
+    public List<MaintenanceArchive> maintenanceHistory(
+            @Parameter(description = "Numéro de page") @RequestParam(value = "page", defaultValue = "0") int page,
+            @Parameter(description = "Taille de la page, de 1 à 500") @RequestParam(value = "size", defaultValue = "100") int size) {
+        return maintenanceService.maintenanceHistory(page, size);
+    }
+
+    @Operation(summary = "Voir l'historique des maintenances archivées d'un véhicule", description = "Requête pour la récupération des maintenances terminées et archivées d'un véhicule")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Opération réussi", content = @Content(mediaType = "application/json", schema = @Schema(implementation = MaintenanceArchive.class)))})
+    @GetMapping("/maintenance/history/vehicle/{id}")
+    public List<MaintenanceArchive> maintenanceHistoryVehicleId(@Parameter(description = "Identifiant du vehicule", required = true) @PathVariable(value = "id") int idVehicle) {
+        return maintenanceService.maintenanceHistoryWithVehicle(idVehicle);
+    }
+
+    @Operation(summary = "Voir les statistiques des maintenances", description = "Requête pour la récupération du nombre de maintenances par type de véhicule, par soucis et par jour de création")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Opération réussi", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\n" + "  \"VEHICLE_TYPE\": {\"car\": 12, \"motorcycle\": 3},\n" + "  \"UNAVAILABILITY\": {\"1\": 9, \"4\": 6},\n" + "  \"DAY\": {\"2025-11-03\": 15}\n" + "}")))})
+    @GetMapping("/maintenance/statistics")
+    public Map<StatisticDimension, Map<String, Long>> maintenanceStatistics() {
+        return maintenanceService.maintenanceStatistics();
+    }
+
+    @Operation(summary = "Recalculer les statistiques des maintenances", description = "Requête pour recalculer tous les compteurs depuis les maintenances actives et archivées")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Opération réussi", content = @Content(mediaType = "application/json", examples = @ExampleObject(value = "{\n" + "    \"success\": true,\n" + "    \"message\": \"Les statistiques ont été recalculées !\"\n" + "}")))})
+    @PostMapping("/maintenance/statistics/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildMaintenanceStatistics() {
+        return ResponseEntity.ok(maintenanceService.rebuildStatisticsService());
+    }
+}
@@ -0,0 +1,151 @@
+package fr.vehiclerental.maintenance.diagnostic;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+/**
+ * DataSource qui mesure chaque requête SQL (durée, lignes lues, type des paramètres) pour SqlStatistics.
+ * Les connexions, statements et result sets du pool sont enveloppés par des proxys JDK.
+ * La fermeture est transmise au pool enveloppé, qui reste fermé avec le contexte Spring.
+ */
+public class InspectingDataSource extends DelegatingDataSource implements AutoCloseable {
+    private final SqlStatistics sqlStatistics;
+
+    public InspectingDataSource(DataSource targetDataSource, SqlStatistics sqlStatistics) {
+        super(targetDataSource);
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return this.wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return this.wrap(super.getConnection(username, password));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (this.getTargetDataSource() instanceof AutoCloseable pool) {
+            pool.close();
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        return proxy(Connection.class, new ConnectionHandler(connection));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(InspectingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = call(target, method, args);
+            String sql = args != null && args.length > 0 && args[0] instanceof String value ? value : null;
+            if (result instanceof CallableStatement statement) {
+                return proxy(CallableStatement.class, new StatementHandler(statement, sql));
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxy(PreparedStatement.class, new StatementHandler(statement, sql));
+            }
+            if (result instanceof Statement statement) {
+                return proxy(Statement.class, new StatementHandler(statement, null));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private final Map<Integer, String> parameterTypes = new TreeMap<>();
+        private SqlStatistics.ShapeStatistics lastStatistics;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (sql != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameterTypes.put(index, name.substring(3));
+            } else if ("clearParameters".equals(name)) {
+                parameterTypes.clear();
+            }
+            if (!name.startsWith("execute")) {
+                Object result = call(target, method, args);
+                if ("getResultSet".equals(name) && result instanceof ResultSet resultSet && lastStatistics != null) {
+                    return proxy(ResultSet.class, new ResultSetHandler(resultSet, lastStatistics));
+                }
+                return result;
+            }
+            String executedSql = sql != null ? sql : (args != null && args.length > 0 && args[0] instanceof String value ? value : null);
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = call(target, method, args);
+            } finally {
+                lastStatistics = sqlStatistics.record(executedSql, this.parameterShape(), System.nanoTime() - start);
+            }
+            if (result instanceof ResultSet resultSet) {
+                return proxy(ResultSet.class, new ResultSetHandler(resultSet, lastStatistics));
+            }
+            return result;
+        }
+
+        private String parameterShape() {
+            StringJoiner shape = new StringJoiner(", ", "(", ")");
+            parameterTypes.values().forEach(shape::add);
+            return shape.toString();
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final SqlStatistics.ShapeStatistics statistics;
+
+        ResultSetHandler(ResultSet target, SqlStatistics.ShapeStatistics statistics) {
+            this.target = target;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = call(target, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                statistics.addRow();
+            }
+            return result;
+        }
+    }
+}
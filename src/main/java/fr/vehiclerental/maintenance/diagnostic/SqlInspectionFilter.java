@@ -0,0 +1,30 @@
+package fr.vehiclerental.maintenance.diagnostic;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Délimite chaque requête HTTP pour que SqlStatistics puisse y compter les requêtes SQL répétées (N+1)
+ */
+public class SqlInspectionFilter extends OncePerRequestFilter {
+    private final SqlStatistics sqlStatistics;
+
+    public SqlInspectionFilter(SqlStatistics sqlStatistics) {
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        sqlStatistics.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            sqlStatistics.endRequest(request.getMethod() + " " + request.getRequestURI());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package fr.vehiclerental.maintenance.diagnostic;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Statistiques des requêtes SQL regroupées par forme (littéraux et listes IN remplacés par des ?),
+ * capture des requêtes lentes avec le type de leurs paramètres et détection des N+1 par requête HTTP.
+ */
+@Slf4j
+public class SqlStatistics {
+    private static final int MAX_SHAPES = 1000;
+    private static final String OTHER_SHAPE = "<other>";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+
+    private final Map<String, ShapeStatistics> shapes = new ConcurrentHashMap<>();
+    // Évite de refaire les regex pour chaque exécution d'un même SQL
+    private final Map<String, String> normalizedSql = new ConcurrentHashMap<>();
+    private final Deque<SlowStatement> slowStatements = new ArrayDeque<>();
+    private final Deque<NPlusOne> nPlusOnes = new ArrayDeque<>();
+    private final ThreadLocal<Map<String, Integer>> currentRequest = new ThreadLocal<>();
+
+    private final long slowThresholdNanos;
+    private final int nPlusOneThreshold;
+    private final int maxCaptured;
+
+    public SqlStatistics(long slowThresholdMillis, int nPlusOneThreshold, int maxCaptured) {
+        this.slowThresholdNanos = slowThresholdMillis * 1_000_000L;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.maxCaptured = maxCaptured;
+    }
+
+    /**
+     * Méthode appelée après chaque exécution d'une requête SQL
+     *
+     * @param sql            SQL exécuté
+     * @param parameterShape types des paramètres liés, sans leurs valeurs
+     * @param elapsedNanos   durée d'exécution
+     * @return statistiques de la forme, pour y compter les lignes lues
+     */
+    public ShapeStatistics record(String sql, String parameterShape, long elapsedNanos) {
+        String shape = this.shapeOf(sql);
+        ShapeStatistics statistics = shapes.get(shape);
+        if (statistics == null) {
+            statistics = shapes.size() < MAX_SHAPES
+                    ? shapes.computeIfAbsent(shape, key -> new ShapeStatistics())
+                    : shapes.computeIfAbsent(OTHER_SHAPE, key -> new ShapeStatistics());
+        }
+        statistics.record(elapsedNanos);
+
+        Map<String, Integer> request = currentRequest.get();
+        if (request != null) {
+            request.merge(shape, 1, Integer::sum);
+        }
+        if (elapsedNanos >= slowThresholdNanos) {
+            this.capture(slowStatements, new SlowStatement(LocalDateTime.now(), shape, parameterShape, elapsedNanos / 1_000_000L));
+        }
+        return statistics;
+    }
+
+    public void beginRequest() {
+        currentRequest.set(new HashMap<>());
+    }
+
+    /**
+     * Méthode appelée en fin de requête HTTP, signale les formes exécutées trop souvent (N+1)
+     *
+     * @param request méthode et url de la requête HTTP
+     */
+    public void endRequest(String request) {
+        Map<String, Integer> counts = currentRequest.get();
+        currentRequest.remove();
+        if (counts == null) {
+            return;
+        }
+        counts.forEach((shape, count) -> {
+            if (count >= nPlusOneThreshold) {
+                log.warn("Possible N+1 on {}: {} executions of {}", request, count, shape);
+                this.capture(nPlusOnes, new NPlusOne(LocalDateTime.now(), request, shape, count));
+            }
+        });
+    }
+
+    /**
+     * Méthode pour lire toutes les statistiques, triées par temps total décroissant
+     *
+     * @return statistiques, requêtes lentes et N+1 détectés
+     */
+    public Map<String, Object> snapshot() {
+        List<Map<String, Object>> statements = new ArrayList<>();
+        shapes.forEach((shape, statistics) -> {
+            Map<String, Object> statement = new LinkedHashMap<>();
+            statement.put("sql", shape);
+            statement.put("count", statistics.count.sum());
+            statement.put("totalMs", statistics.totalNanos.sum() / 1_000_000L);
+            statement.put("maxMs", statistics.maxNanos.get() / 1_000_000L);
+            statement.put("rows", statistics.rows.sum());
+            statements.add(statement);
+        });
+        statements.sort(Comparator.comparingLong((Map<String, Object> statement) -> (Long) statement.get("totalMs")).reversed());
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("statements", statements);
+        synchronized (this) {
+            snapshot.put("slowStatements", new ArrayList<>(slowStatements));
+            snapshot.put("nPlusOne", new ArrayList<>(nPlusOnes));
+        }
+        return snapshot;
+    }
+
+    public void reset() {
+        shapes.clear();
+        synchronized (this) {
+            slowStatements.clear();
+            nPlusOnes.clear();
+        }
+    }
+
+    private synchronized <T> void capture(Deque<T> captured, T entry) {
+        if (captured.size() >= maxCaptured) {
+            captured.removeFirst();
+        }
+        captured.addLast(entry);
+    }
+
+    /**
+     * Méthode pour réduire un SQL à sa forme : espaces normalisés, littéraux et listes IN remplacés par des ?
+     *
+     * @param sql SQL exécuté, null pour un batch
+     * @return forme du SQL
+     */
+    String shapeOf(String sql) {
+        if (sql == null) {
+            return "<batch>";
+        }
+        String shape = normalizedSql.get(sql);
+        if (shape == null) {
+            shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+            shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+            shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+            shape = IN_LIST.matcher(shape).replaceAll("in (?...)");
+            if (normalizedSql.size() < MAX_SHAPES * 4) {
+                normalizedSql.put(sql, shape);
+            }
+        }
+        return shape;
+    }
+
+    public static class ShapeStatistics {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder rows = new LongAdder();
+
+        void record(long elapsedNanos) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        }
+
+        void addRow() {
+            rows.increment();
+        }
+    }
+
+    public record SlowStatement(LocalDateTime timestamp, String sql, String parameters, long durationMs) {
+    }
+
+    public record NPlusOne(LocalDateTime timestamp, String request, String sql, int executions) {
+    }
+}
@@ -0,0 +1,29 @@
+package fr.vehiclerental.maintenance.diagnostic;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Map;
+
+/**
+ * Endpoint d'administration /actuator/sql : statistiques par forme de requête, requêtes lentes et N+1
+ */
+@Endpoint(id = "sql")
+public class SqlStatisticsEndpoint {
+    private final SqlStatistics sqlStatistics;
+
+    public SqlStatisticsEndpoint(SqlStatistics sqlStatistics) {
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return sqlStatistics.snapshot();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        sqlStatistics.reset();
+    }
+}
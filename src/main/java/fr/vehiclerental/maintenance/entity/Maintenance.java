@@ -5,13 +5,15 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
-import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Data
 @Builder
 @AllArgsConstructor
 @Entity
-@Table(name = "Maintenance")
+@Table(name = "Maintenance", indexes = {
+        @Index(name = "idx_maintenance_vehicle", columnList = "id_vehicle"),
+        @Index(name = "idx_maintenance_status", columnList = "status")})
 public class Maintenance {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,10 +25,34 @@ public class Maintenance {
     @Column(name = "id_unavailabilty")
     private int idUnavailability;
 
+    @Column(name = "vehicle_type", length = 64)
+    private String vehicleType;
+
+    @Builder.Default
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private MaintenanceStatus status = MaintenanceStatus.SCHEDULED;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
     public Maintenance() {
         super();
     }
 
+    @PrePersist
+    void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (status == null) {
+            status = MaintenanceStatus.SCHEDULED;
+        }
+    }
+
     public int getIdUnavailability() {
         return idUnavailability;
     }
@@ -57,6 +83,10 @@ public class Maintenance {
                 "id=" + id +
                 ", idVehicle=" + idVehicle +
                 ", idUnavailability=" + idUnavailability +
+                ", vehicleType='" + vehicleType + '\'' +
+                ", status=" + status +
+                ", createdAt=" + createdAt +
+                ", completedAt=" + completedAt +
                 '}';
     }
 }
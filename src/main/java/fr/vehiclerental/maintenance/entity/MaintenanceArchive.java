@@ -0,0 +1,77 @@
+package fr.vehiclerental.maintenance.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@Entity
+@Table(name = "MaintenanceArchive", indexes = {@Index(name = "idx_maintenance_archive_vehicle", columnList = "id_vehicle")})
+public class MaintenanceArchive {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "id_maintenance", nullable = false)
+    private int idMaintenance;
+
+    @Column(name = "id_vehicle")
+    private int idVehicle;
+
+    @Column(name = "id_unavailabilty")
+    private int idUnavailability;
+
+    @Column(name = "vehicle_type", length = 64)
+    private String vehicleType;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    public MaintenanceArchive() {
+        super();
+    }
+
+    /**
+     * Méthode pour créer la ligne d'archive d'une maintenance terminée
+     *
+     * @param maintenance maintenance terminée
+     * @param archivedAt  date d'archivage
+     * @return archive
+     */
+    public static MaintenanceArchive from(Maintenance maintenance, LocalDateTime archivedAt) {
+        MaintenanceArchive archive = new MaintenanceArchive();
+        archive.setIdMaintenance(maintenance.getId());
+        archive.setIdVehicle(maintenance.getidVehicle());
+        archive.setIdUnavailability(maintenance.getIdUnavailability());
+        archive.setVehicleType(maintenance.getVehicleType());
+        archive.setCreatedAt(maintenance.getCreatedAt());
+        archive.setCompletedAt(maintenance.getCompletedAt());
+        archive.setArchivedAt(archivedAt);
+        return archive;
+    }
+
+    @Override
+    public String toString() {
+        return "MaintenanceArchive{" +
+                "id=" + id +
+                ", idMaintenance=" + idMaintenance +
+                ", idVehicle=" + idVehicle +
+                ", idUnavailability=" + idUnavailability +
+                ", vehicleType='" + vehicleType + '\'' +
+                ", createdAt=" + createdAt +
+                ", completedAt=" + completedAt +
+                ", archivedAt=" + archivedAt +
+                '}';
+    }
+}
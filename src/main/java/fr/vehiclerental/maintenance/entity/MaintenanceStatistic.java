@@ -0,0 +1,46 @@
+package fr.vehiclerental.maintenance.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+@Entity
+@Table(name = "MaintenanceStatistic", uniqueConstraints = {@UniqueConstraint(name = "uk_maintenance_statistic_group", columnNames = {"dimension", "group_key"})})
+public class MaintenanceStatistic {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension", nullable = false, length = 32)
+    private StatisticDimension dimension;
+
+    @Column(name = "group_key", nullable = false, length = 64)
+    private String groupKey;
+
+    @Column(name = "total", nullable = false)
+    private long total;
+
+    public MaintenanceStatistic() {
+        super();
+    }
+
+    public MaintenanceStatistic(StatisticDimension dimension, String groupKey, long total) {
+        this.dimension = dimension;
+        this.groupKey = groupKey;
+        this.total = total;
+    }
+
+    @Override
+    public String toString() {
+        return "MaintenanceStatistic{" +
+                "dimension=" + dimension +
+                ", groupKey='" + groupKey + '\'' +
+                ", total=" + total +
+                '}';
+    }
+}
@@ -0,0 +1,17 @@
+package fr.vehiclerental.maintenance.entity;
+
+public enum MaintenanceStatus {
+    SCHEDULED,
+    IN_PROGRESS,
+    COMPLETED;
+
+    /**
+     * Méthode de vérification du passage d'un statut à un autre, le cycle de vie ne revient jamais en arrière
+     *
+     * @param next statut demandé
+     * @return Vrai si le passage est autorisé
+     */
+    public boolean canMoveTo(MaintenanceStatus next) {
+        return next != null && next.ordinal() > this.ordinal();
+    }
+}
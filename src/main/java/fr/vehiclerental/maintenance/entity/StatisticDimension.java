@@ -0,0 +1,7 @@
+package fr.vehiclerental.maintenance.entity;
+
+public enum StatisticDimension {
+    VEHICLE_TYPE,
+    UNAVAILABILITY,
+    DAY
+}
@@ -0,0 +1,7 @@
+package fr.vehiclerental.maintenance.exception;
+
+public class InvalidPagination extends BadRequestException {
+    public InvalidPagination(int maxSize) {
+        super("Invalid pagination: page must be >= 0 and size between 1 and " + maxSize + ".");
+    }
+}
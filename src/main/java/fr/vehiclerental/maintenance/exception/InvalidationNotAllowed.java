@@ -0,0 +1,7 @@
+package fr.vehiclerental.maintenance.exception;
+
+public class InvalidationNotAllowed extends RuntimeException {
+    public InvalidationNotAllowed() {
+        super("Invalidation refused: missing or wrong secret.");
+    }
+}
@@ -0,0 +1,14 @@
+package fr.vehiclerental.maintenance.exception;
+
+public class TooManyRequests extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public TooManyRequests(int retryAfterSeconds) {
+        super("Too many requests, please retry later.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,208 @@
+package fr.vehiclerental.maintenance.invalidation;
+
+import fr.vehiclerental.maintenance.exception.InvalidationNotAllowed;
+import fr.vehiclerental.maintenance.service.MaintenanceCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bus d'invalidation entre les instances du service.
+ * Les pairs sont trouvés via Eureka, chaque message porte un numéro de séquence par instance émettrice
+ * et part vers chaque pair dans l'ordre de sa séquence.
+ * Un trou en avant dans la séquence (message perdu) provoque un vidage complet du cache local,
+ * un message en retard n'invalide que ses vehicules.
+ * Les messages portent un secret partagé (invalidation.secret) ; sans secret configuré, seul le cache local est invalidé.
+ */
+@Slf4j
+@Component
+public class InvalidationBus {
+    static final String INVALIDATION_PATH = "/internal/invalidation";
+    static final String SECRET_HEADER = "X-Invalidation-Secret";
+    private static final int MAX_PENDING_PER_PEER = 1000;
+
+    private final String origin = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Long> lastSequences = new ConcurrentHashMap<>();
+    private final Map<URI, PeerLane> lanes = new ConcurrentHashMap<>();
+
+    private final MaintenanceCache maintenanceCache;
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final ExecutorService downstreamExecutor;
+    private final RestTemplate restTemplate;
+    private final String serviceId;
+    private final String secret;
+
+    public InvalidationBus(MaintenanceCache maintenanceCache,
+                           DiscoveryClient discoveryClient,
+                           ObjectProvider<Registration> registration,
+                           @Qualifier("downstreamExecutor") ExecutorService downstreamExecutor,
+                           @Value("${spring.application.name}") String serviceId,
+                           @Value("${invalidation.timeout-ms:1000}") int timeoutMillis,
+                           @Value("${invalidation.secret:}") String secret) {
+        this.maintenanceCache = maintenanceCache;
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.downstreamExecutor = downstreamExecutor;
+        this.serviceId = serviceId;
+        this.secret = secret;
+        if (secret.isBlank()) {
+            log.warn("invalidation.secret is not set: cross-instance cache invalidation is disabled");
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMillis);
+        requestFactory.setReadTimeout(timeoutMillis);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Méthode pour invalider les maintenances de vehicules, localement et sur les autres instances
+     *
+     * @param idVehicles ids des vehicules modifiés
+     */
+    public void publish(Collection<Integer> idVehicles) {
+        List<Integer> ids = idVehicles.stream().filter(Objects::nonNull).distinct().toList();
+        maintenanceCache.evict(ids);
+        send(ids);
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Méthode appelée à la réception d'un message d'une autre instance
+     *
+     * @param message        message reçu
+     * @param receivedSecret secret envoyé avec le message
+     */
+    public void receive(InvalidationMessage message, String receivedSecret) {
+        if (secret.isBlank() || receivedSecret == null
+                || !MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8), receivedSecret.getBytes(StandardCharsets.UTF_8))) {
+            throw new InvalidationNotAllowed();
+        }
+        if (origin.equals(message.getOrigin())) {
+            return;
+        }
+        AtomicBoolean gap = new AtomicBoolean();
+        lastSequences.compute(message.getOrigin(), (key, last) -> {
+            long expected = last == null ? 1 : last + 1;
+            // Un numéro déjà dépassé est un message en retard, pas un message perdu
+            if (message.getSequence() > expected) {
+                gap.set(true);
+            }
+            return last == null ? message.getSequence() : Math.max(last, message.getSequence());
+        });
+        if (gap.get()) {
+            log.info("Invalidation sequence gap from {} (got {}), flushing local cache", message.getOrigin(), message.getSequence());
+            maintenanceCache.clear();
+        } else if (message.getIdVehicles() != null) {
+            maintenanceCache.evict(message.getIdVehicles());
+        }
+    }
+
+    long lastSequence(String origin) {
+        return lastSequences.getOrDefault(origin, 0L);
+    }
+
+    private void send(List<Integer> ids) {
+        if (secret.isBlank()) {
+            return;
+        }
+        List<ServiceInstance> peers;
+        try {
+            peers = discoveryClient.getInstances(serviceId);
+        } catch (RuntimeException e) {
+            log.warn("Unable to list peers for invalidation: {}", e.getMessage());
+            peers = null;
+        }
+        Registration self = registration.getIfAvailable();
+        String selfId = self == null ? null : self.getInstanceId();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(SECRET_HEADER, secret);
+        // Numéro et mise en file sous le même verrou : chaque pair reçoit les messages dans l'ordre de la séquence
+        synchronized (this) {
+            // Le numéro est consommé même sans pair joignable : le trou sera vu au message suivant
+            HttpEntity<InvalidationMessage> request = new HttpEntity<>(new InvalidationMessage(origin, sequence.incrementAndGet(), ids), headers);
+            if (peers == null) {
+                return;
+            }
+            for (ServiceInstance peer : peers) {
+                if (selfId == null || !selfId.equals(peer.getInstanceId())) {
+                    lanes.computeIfAbsent(peer.getUri(), PeerLane::new).enqueue(request);
+                }
+            }
+        }
+    }
+
+    /**
+     * File d'envoi vers un pair : les messages partent un par un, dans l'ordre, sur l'exécuteur downstream.
+     * Si le pair ne suit pas, les messages en trop sont abandonnés et il videra son cache en voyant le trou.
+     */
+    private class PeerLane {
+        private final URI uri;
+        private final Deque<HttpEntity<InvalidationMessage>> pending = new ArrayDeque<>();
+        private boolean draining;
+
+        PeerLane(URI uri) {
+            this.uri = uri;
+        }
+
+        synchronized void enqueue(HttpEntity<InvalidationMessage> request) {
+            if (pending.size() >= MAX_PENDING_PER_PEER) {
+                log.warn("Invalidation {} dropped for {}: too many pending messages", request.getBody().getSequence(), uri);
+                return;
+            }
+            pending.addLast(request);
+            if (!draining) {
+                draining = true;
+                try {
+                    downstreamExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining = false;
+                    pending.clear();
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                HttpEntity<InvalidationMessage> request;
+                synchronized (this) {
+                    request = pending.pollFirst();
+                    if (request == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    restTemplate.postForLocation(uri.resolve(INVALIDATION_PATH), request);
+                } catch (RestClientException e) {
+                    // Le pair videra son cache en voyant le trou dans la séquence au prochain message
+                    log.warn("Invalidation {} not delivered to {}: {}", request.getBody().getSequence(), uri, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package fr.vehiclerental.maintenance.invalidation;
+
+import io.swagger.v3.oas.annotations.Hidden;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+@Hidden
+@RestController
+public class InvalidationController {
+    private final InvalidationBus invalidationBus;
+
+    public InvalidationController(InvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    @PostMapping(InvalidationBus.INVALIDATION_PATH)
+    public ResponseEntity<Void> invalidate(@RequestHeader(value = InvalidationBus.SECRET_HEADER, required = false) String secret,
+                                           @RequestBody InvalidationMessage message) {
+        invalidationBus.receive(message, secret);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,52 @@
+package fr.vehiclerental.maintenance.invalidation;
+
+import java.util.List;
+
+public class InvalidationMessage {
+    private String origin;
+    private long sequence;
+    private List<Integer> idVehicles;
+
+    public InvalidationMessage() {
+        super();
+    }
+
+    public InvalidationMessage(String origin, long sequence, List<Integer> idVehicles) {
+        this.origin = origin;
+        this.sequence = sequence;
+        this.idVehicles = idVehicles;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public List<Integer> getIdVehicles() {
+        return idVehicles;
+    }
+
+    public void setIdVehicles(List<Integer> idVehicles) {
+        this.idVehicles = idVehicles;
+    }
+
+    @Override
+    public String toString() {
+        return "InvalidationMessage{" +
+                "origin='" + origin + '\'' +
+                ", sequence=" + sequence +
+                ", idVehicles=" + idVehicles +
+                '}';
+    }
+}
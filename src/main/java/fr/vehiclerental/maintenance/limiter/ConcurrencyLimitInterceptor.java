@@ -0,0 +1,89 @@
+package fr.vehiclerental.maintenance.limiter;
+
+import fr.vehiclerental.maintenance.exception.TooManyRequests;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Set;
+
+@Component
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+    private static final String LIMITER_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".limiter";
+    private static final String START_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".start";
+    // Requêtes POST qui ne font que lire (corps trop gros pour une url)
+    private static final Set<String> READ_ONLY_POST_PATHS = Set.of("/maintenance/vehicles");
+
+    private final AdaptiveConcurrencyLimiter readLimiter;
+    private final AdaptiveConcurrencyLimiter mutationLimiter;
+    private final int retryAfterSeconds;
+
+    public ConcurrencyLimitInterceptor(MeterRegistry meterRegistry,
+                                       @Value("${limiter.read.initial:50}") int readInitial,
+                                       @Value("${limiter.read.max:400}") int readMax,
+                                       @Value("${limiter.read.latency-threshold-ms:250}") long readThreshold,
+                                       @Value("${limiter.mutation.initial:20}") int mutationInitial,
+                                       @Value("${limiter.mutation.max:100}") int mutationMax,
+                                       @Value("${limiter.mutation.latency-threshold-ms:2000}") long mutationThreshold,
+                                       @Value("${limiter.min:4}") int minLimit,
+                                       @Value("${limiter.backoff-ratio:0.9}") double backoffRatio,
+                                       @Value("${limiter.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.readLimiter = new AdaptiveConcurrencyLimiter("read", readInitial, minLimit, readMax, readThreshold, backoffRatio);
+        this.mutationLimiter = new AdaptiveConcurrencyLimiter("mutation", mutationInitial, minLimit, mutationMax, mutationThreshold, backoffRatio);
+        this.retryAfterSeconds = retryAfterSeconds;
+        register(meterRegistry, readLimiter);
+        register(meterRegistry, mutationLimiter);
+    }
+
+    /**
+     * Méthode pour exporter la limite courante, les requêtes en cours et les rejets
+     *
+     * @param meterRegistry Registre des métriques
+     * @param limiter       Limiteur à exporter
+     */
+    private void register(MeterRegistry meterRegistry, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("maintenance.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("group", limiter.getName())
+                .register(meterRegistry);
+        Gauge.builder("maintenance.limiter.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("group", limiter.getName())
+                .register(meterRegistry);
+        FunctionCounter.builder("maintenance.limiter.shed", limiter, AdaptiveConcurrencyLimiter::getShed)
+                .tag("group", limiter.getName())
+                .register(meterRegistry);
+    }
+
+    private AdaptiveConcurrencyLimiter limiterFor(HttpServletRequest request) {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method)
+                || ("POST".equals(method) && READ_ONLY_POST_PATHS.contains(request.getRequestURI()))) {
+            return readLimiter;
+        }
+        return mutationLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        AdaptiveConcurrencyLimiter limiter = limiterFor(request);
+        if (!limiter.tryAcquire()) {
+            throw new TooManyRequests(retryAfterSeconds);
+        }
+        request.setAttribute(LIMITER_ATTRIBUTE, limiter);
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(LIMITER_ATTRIBUTE) instanceof AdaptiveConcurrencyLimiter limiter
+                && request.getAttribute(START_ATTRIBUTE) instanceof Long start) {
+            request.removeAttribute(LIMITER_ATTRIBUTE);
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package fr.vehiclerental.maintenance.service;
+
+import fr.vehiclerental.maintenance.entity.MaintenanceArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MaintenanceArchiveDAO extends JpaRepository<MaintenanceArchive, Integer> {
+    List<MaintenanceArchive> findByIdVehicle(int idVehicle);
+}
@@ -0,0 +1,93 @@
+package fr.vehiclerental.maintenance.service;
+
+import fr.vehiclerental.maintenance.entity.Maintenance;
+import fr.vehiclerental.maintenance.entity.MaintenanceArchive;
+import fr.vehiclerental.maintenance.entity.MaintenanceStatus;
+import fr.vehiclerental.maintenance.invalidation.InvalidationBus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Déplace les maintenances terminées vers la table d'archive, par petits lots.
+ * Chaque lot a sa propre transaction courte pour ne pas bloquer les écritures sur la table Maintenance.
+ */
+@Slf4j
+@Component
+public class MaintenanceArchiver {
+    private final MaintenanceDAO maintenanceDAO;
+    private final MaintenanceArchiveDAO maintenanceArchiveDAO;
+    private final InvalidationBus invalidationBus;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public MaintenanceArchiver(MaintenanceDAO maintenanceDAO,
+                               MaintenanceArchiveDAO maintenanceArchiveDAO,
+                               InvalidationBus invalidationBus,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${maintenance.archive.batch-size:200}") int batchSize,
+                               @Value("${maintenance.archive.max-batches:50}") int maxBatches) {
+        this.maintenanceDAO = maintenanceDAO;
+        this.maintenanceArchiveDAO = maintenanceArchiveDAO;
+        this.invalidationBus = invalidationBus;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    /**
+     * Méthode planifiée d'archivage des maintenances terminées
+     */
+    @Scheduled(initialDelayString = "${maintenance.archive.initial-delay-ms:60000}", fixedDelayString = "${maintenance.archive.delay-ms:60000}")
+    public void archiveCompleted() {
+        int archived = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Integer> idVehicles;
+            try {
+                idVehicles = transactionTemplate.execute(status -> this.archiveBatch());
+            } catch (PessimisticLockingFailureException e) {
+                // Ligne tenue trop longtemps par une écriture : le lot est annulé et repris au prochain passage
+                log.warn("Archive batch skipped, rows locked by a concurrent write: {}", e.getMessage());
+                break;
+            }
+            if (idVehicles == null || idVehicles.isEmpty()) {
+                break;
+            }
+            archived += idVehicles.size();
+            invalidationBus.publish(idVehicles);
+        }
+        if (archived > 0) {
+            log.info("{} completed maintenances archived", archived);
+        }
+    }
+
+    /**
+     * Méthode pour archiver un lot de maintenances terminées.
+     * Les lignes sont verrouillées à la lecture : une modification concurrente attend la fin du lot,
+     * et le lot attend une modification déjà en cours (ou saute la ligne si la base gère SKIP LOCKED).
+     *
+     * @return ids des vehicules des maintenances archivées
+     */
+    private List<Integer> archiveBatch() {
+        List<Maintenance> completed = maintenanceDAO.findLockedByStatusOrderById(MaintenanceStatus.COMPLETED, PageRequest.of(0, batchSize));
+        if (completed.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        maintenanceArchiveDAO.saveAll(completed.stream().map(maintenance -> MaintenanceArchive.from(maintenance, now)).toList());
+        int deleted = maintenanceDAO.deleteByIdInAndStatus(completed.stream().map(Maintenance::getId).toList(), MaintenanceStatus.COMPLETED);
+        if (deleted != completed.size()) {
+            // Ne devrait pas arriver avec le verrou : on annule le lot plutôt que d'archiver des valeurs périmées
+            throw new IllegalStateException("Archive batch changed concurrently: " + deleted + " of " + completed.size() + " rows deleted");
+        }
+        return completed.stream().map(Maintenance::getidVehicle).toList();
+    }
+}
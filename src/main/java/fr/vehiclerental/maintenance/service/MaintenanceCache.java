@@ -0,0 +1,66 @@
+package fr.vehiclerental.maintenance.service;
+
+import fr.vehiclerental.maintenance.entity.Maintenance;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache local des maintenances par vehicule.
+ * Les invalidations viennent de cette instance ou des autres via l'InvalidationBus,
+ * le TTL borne la durée d'une donnée périmée si une invalidation est perdue.
+ */
+@Component
+public class MaintenanceCache {
+    private final Map<Integer, Entry> byVehicle = new ConcurrentHashMap<>();
+    // Incrémenté à chaque invalidation pour ne pas remettre en cache un résultat chargé avant celle-ci
+    private final AtomicLong version = new AtomicLong();
+    private final long ttlMillis;
+
+    public MaintenanceCache(@Value("${maintenance.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.ttlMillis = ttlSeconds * 1000L;
+    }
+
+    /**
+     * Méthode pour récuperer les maintenances d'un vehicule, chargées si absentes ou expirées
+     *
+     * @param idVehicle id du vehicule
+     * @param loader    chargement depuis la base de données
+     * @return maintenances du vehicule
+     */
+    public List<Maintenance> get(int idVehicle, Supplier<List<Maintenance>> loader) {
+        long now = System.currentTimeMillis();
+        Entry entry = byVehicle.get(idVehicle);
+        if (entry != null && now - entry.loadedAt < ttlMillis) {
+            return entry.maintenances;
+        }
+        long versionBeforeLoad = version.get();
+        List<Maintenance> maintenances = List.copyOf(loader.get());
+        // Vérification et insertion atomiques : un evict de ce vehicule attend la fin du compute
+        byVehicle.compute(idVehicle, (key, current) -> version.get() == versionBeforeLoad ? new Entry(maintenances, now) : current);
+        return maintenances;
+    }
+
+    public boolean contains(int idVehicle) {
+        return byVehicle.containsKey(idVehicle);
+    }
+
+    public void evict(Collection<Integer> idVehicles) {
+        version.incrementAndGet();
+        idVehicles.forEach(byVehicle::remove);
+    }
+
+    public void clear() {
+        version.incrementAndGet();
+        byVehicle.clear();
+    }
+
+    private record Entry(List<Maintenance> maintenances, long loadedAt) {
+    }
+}
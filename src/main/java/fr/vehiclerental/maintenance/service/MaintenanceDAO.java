@@ -1,10 +1,17 @@
 package fr.vehiclerental.maintenance.service;
 
 import fr.vehiclerental.maintenance.entity.Maintenance;
-import org.springframework.data.jpa.repository.JpaRepository;
+import fr.vehiclerental.maintenance.entity.MaintenanceStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MaintenanceDAO extends JpaRepository<Maintenance, Integer> {
@@ -12,6 +19,39 @@ public interface MaintenanceDAO extends JpaRepository<Maintenance, Integer> {
 
     List<Maintenance> findByIdVehicle(int id_vehicle);
 
+    List<Maintenance> findByIdVehicleIn(Collection<Integer> idVehicles);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select m from Maintenance m where m.id = :id")
+    Optional<Maintenance> findForUpdate(@Param("id") int id);
+
+    @Modifying
+    @Query("delete from Maintenance m where m.id = :id")
+    int deleteRowById(@Param("id") int id);
+
+    // Verrouille les lignes lues ; timeout -2 = SKIP LOCKED quand le dialecte le gère, sinon (H2) la lecture attend le verrou
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<Maintenance> findLockedByStatusOrderById(MaintenanceStatus status, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Maintenance m where m.id in :ids and m.status = :status")
+    int deleteByIdInAndStatus(@Param("ids") Collection<Integer> ids, @Param("status") MaintenanceStatus status);
+
+    // Les tables Maintenance et MaintenanceArchive sont lues par une seule requête :
+    // une ligne déplacée par l'archivage pendant le calcul n'est vue que d'un côté
+    @Query("select t.groupKey, count(*) from (select m.vehicleType as groupKey from Maintenance m where m.vehicleType is not null"
+            + " union all select a.vehicleType from MaintenanceArchive a where a.vehicleType is not null) t group by t.groupKey")
+    List<Object[]> countByVehicleType();
+
+    @Query("select t.groupKey, count(*) from (select m.idUnavailability as groupKey from Maintenance m"
+            + " union all select a.idUnavailability from MaintenanceArchive a) t group by t.groupKey")
+    List<Object[]> countByUnavailability();
+
+    @Query("select t.groupKey, count(*) from (select cast(m.createdAt as LocalDate) as groupKey from Maintenance m where m.createdAt is not null"
+            + " union all select cast(a.createdAt as LocalDate) from MaintenanceArchive a where a.createdAt is not null) t group by t.groupKey")
+    List<Object[]> countByDay();
+
     List<Maintenance> findAll();
 
     void delete(Maintenance maintenance);
@@ -2,21 +2,62 @@ package fr.vehiclerental.maintenance.service;
 
 import fr.vehiclerental.maintenance.entity.*;
 import fr.vehiclerental.maintenance.exception.*;
+import fr.vehiclerental.maintenance.invalidation.InvalidationBus;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 
 public class MaintenanceService {
+    private static final int VEHICLE_CHUNK_SIZE = 500;
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
 
     @Autowired
     MaintenanceDAO maintenanceDAO;
 
+    @Autowired
+    @Qualifier("downstreamExecutor")
+    ExecutorService downstreamExecutor;
+
+    @Autowired
+    MaintenanceArchiveDAO maintenanceArchiveDAO;
+
+    @Autowired
+    MaintenanceCache maintenanceCache;
+
+    @Autowired
+    MaintenanceStatistics maintenanceStatistics;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    InvalidationBus invalidationBus;
+
+    @Value("${downstream.vehicle-url:http://localhost:8082}")
+    String vehicleUrl;
+
+    @Value("${downstream.unavailability-url:http://localhost:8085}")
+    String unavailabilityUrl;
+
+    @Value("${downstream.reservation-url:http://localhost:8083}")
+    String reservationUrl;
+
 
     /**
      * Méthode pour récuperer toute les maintenances
@@ -49,7 +90,7 @@ public class MaintenanceService {
      */
     public List<VehicleDTO> requestVehicle(int idVehicle) {
         RestTemplate restTemplate = new RestTemplate();
-        String userRequest = "http://localhost:8082/vehicles/" + idVehicle;
+        String userRequest = vehicleUrl + "/vehicles/" + idVehicle;
         VehicleDTO[] response = restTemplate.getForObject(userRequest, VehicleDTO[].class);
         if (response == null) {
             return new ArrayList<>();
@@ -66,7 +107,7 @@ public class MaintenanceService {
      */
     public List<UnavailabilityDTO> requestUnavaibility(int idSoucis) {
         RestTemplate restTemplate = new RestTemplate();
-        String userRequest = "http://localhost:8085/unavailability/" + idSoucis;
+        String userRequest = unavailabilityUrl + "/unavailability/" + idSoucis;
         UnavailabilityDTO[] response = restTemplate.getForObject(userRequest, UnavailabilityDTO[].class);
         if (response == null) {
             return new ArrayList<>();
@@ -83,7 +124,7 @@ public class MaintenanceService {
      */
     public boolean requestReservation(int idVehicle) {
         RestTemplate restTemplate = new RestTemplate();
-        String reservationRequest = "http://localhost:8083/reservations/vehicle/" + idVehicle;
+        String reservationRequest = reservationUrl + "/reservations/vehicle/" + idVehicle;
         ReservationDTO[] response = restTemplate.getForObject(reservationRequest, ReservationDTO[].class);
         if (response.length == 0) {
             return true;
@@ -162,6 +203,31 @@ public class MaintenanceService {
         return list.getFirst();
     }
 
+    /**
+     * Méthode pour attendre le résultat d'un appel lancé sur l'exécuteur downstream.
+     * Si l'appel échoue, les autres appels encore en cours sont annulés.
+     *
+     * @param future Appel attendu
+     * @param calls  Tous les appels lancés pour la même requête
+     * @param <T>    Type du résultat
+     * @return Résultat ou l'exception d'origine
+     */
+    private <T> T await(Future<T> future, List<Future<?>> calls) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            calls.forEach(call -> call.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            calls.forEach(call -> call.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Méthode de vérifiction pour l'ajout d'une maintenance
      *
@@ -169,15 +235,26 @@ public class MaintenanceService {
      * @return réponse
      */
     public Map<String, Object> addMaintenanceService(RequiredMaintenance informations) {
-        VehicleDTO vehicleDTO = this.vehicleVerification(informations.getId_vehicle());
-        UnavailabilityDTO unavailability = this.unavailabilityVerification(informations.getId_unavailability());
-        this.requestReservation(informations.getId_vehicle());
+        Future<VehicleDTO> vehicleCall = downstreamExecutor.submit(() -> this.vehicleVerification(informations.getId_vehicle()));
+        Future<UnavailabilityDTO> unavailabilityCall = downstreamExecutor.submit(() -> this.unavailabilityVerification(informations.getId_unavailability()));
+        Future<Boolean> reservationCall = downstreamExecutor.submit(() -> this.requestReservation(informations.getId_vehicle()));
+        List<Future<?>> calls = List.of(vehicleCall, unavailabilityCall, reservationCall);
+        VehicleDTO vehicleDTO = this.await(vehicleCall, calls);
+        UnavailabilityDTO unavailability = this.await(unavailabilityCall, calls);
+        this.await(reservationCall, calls);
         if (this.typeVerificationUnavaibility(unavailability.getTypeVehicle(), vehicleDTO.getType())) {
             Map<String, Object> response = new HashMap<>();
             Maintenance maintenance = new Maintenance();
             maintenance.setidVehicle(vehicleDTO.getId());
             maintenance.setIdUnavailability(unavailability.getId());
-            maintenanceDAO.save(maintenance);
+            maintenance.setVehicleType(vehicleDTO.getType());
+            maintenance.setCreatedAt(LocalDateTime.now());
+            maintenanceStatistics.prepare(maintenance);
+            transactionTemplate.executeWithoutResult(status -> {
+                maintenanceDAO.save(maintenance);
+                maintenanceStatistics.record(maintenance, 1);
+            });
+            invalidationBus.publish(List.of(maintenance.getidVehicle()));
             response.put("success", true);
             response.put("message", "Votre maintenance a été ajouté !");
             return response;
@@ -195,13 +272,36 @@ public class MaintenanceService {
      */
     public Map<String, Object> editMaintenanceService(int idMaintenance, Maintenance maintenanceRequest) {
         try {
-            List<Maintenance> maintenance = this.maintenanceVerification(idMaintenance);
-            VehicleDTO vehicle = this.vehicleVerification(maintenanceRequest.getidVehicle());
-            UnavailabilityDTO unavailability = this.unavailabilityVerification(maintenanceRequest.getIdUnavailability());
+            Future<VehicleDTO> vehicleCall = downstreamExecutor.submit(() -> this.vehicleVerification(maintenanceRequest.getidVehicle()));
+            Future<UnavailabilityDTO> unavailabilityCall = downstreamExecutor.submit(() -> this.unavailabilityVerification(maintenanceRequest.getIdUnavailability()));
+            List<Future<?>> calls = List.of(vehicleCall, unavailabilityCall);
+            try {
+                this.maintenanceVerification(idMaintenance);
+            } catch (RuntimeException e) {
+                calls.forEach(call -> call.cancel(true));
+                throw e;
+            }
+            VehicleDTO vehicle = this.await(vehicleCall, calls);
+            UnavailabilityDTO unavailability = this.await(unavailabilityCall, calls);
             if (!this.typeVerificationUnavaibility(unavailability.getTypeVehicle(), vehicle.getType())) {
                 throw new VehicleType();
             } else {
-                this.editMaintenance(maintenance.getFirst(), maintenanceRequest);
+                Maintenance edited = new Maintenance();
+                edited.setVehicleType(vehicle.getType());
+                edited.setIdUnavailability(maintenanceRequest.getIdUnavailability());
+                maintenanceStatistics.prepare(edited);
+                // Les anciennes valeurs sont relues sous verrou : une écriture concurrente ne peut pas fausser les compteurs
+                Integer previousVehicle = transactionTemplate.execute(status -> {
+                    Maintenance findindMaintenance = maintenanceDAO.findForUpdate(idMaintenance).orElseThrow(MaintenanceNotFind::new);
+                    int previousIdVehicle = findindMaintenance.getidVehicle();
+                    String previousVehicleType = findindMaintenance.getVehicleType();
+                    int previousUnavailability = findindMaintenance.getIdUnavailability();
+                    findindMaintenance.setVehicleType(vehicle.getType());
+                    this.editMaintenance(findindMaintenance, maintenanceRequest);
+                    maintenanceStatistics.move(previousVehicleType, previousUnavailability, findindMaintenance);
+                    return previousIdVehicle;
+                });
+                invalidationBus.publish(List.of(previousVehicle, maintenanceRequest.getidVehicle()));
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", true);
                 response.put("message", "Votre maintenance a été modifié !");
@@ -219,16 +319,92 @@ public class MaintenanceService {
      * @return réponse
      */
     public Map<String, Object> deleteMaintenanceService(int idMaintenance) {
-        List<Maintenance> maintenances = maintenanceDAO.findById(idMaintenance);
-        if (maintenances == null || maintenances.isEmpty()) {
-            throw new MaintenanceNotFind();
-        } else {
-            maintenanceDAO.delete(maintenances.getFirst());
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Votre maintenance a été supprimé !");
-            return response;
+        Maintenance deleted = transactionTemplate.execute(status -> {
+            Maintenance maintenance = maintenanceDAO.findForUpdate(idMaintenance).orElseThrow(MaintenanceNotFind::new);
+            // Le compteur n'est décrémenté que si cette transaction a bien supprimé la ligne
+            if (maintenanceDAO.deleteRowById(idMaintenance) == 1) {
+                maintenanceStatistics.record(maintenance, -1);
+            }
+            return maintenance;
+        });
+        invalidationBus.publish(List.of(deleted.getidVehicle()));
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Votre maintenance a été supprimé !");
+        return response;
+    }
+
+    /**
+     * Méthode pour faire avancer une maintenance dans son cycle de vie
+     *
+     * @param idMaintenance id de la maintenance
+     * @param status        nouveau statut
+     * @return réponse
+     */
+    public Map<String, Object> changeStatusService(int idMaintenance, MaintenanceStatus status) {
+        // Seule la ligne relue sous verrou est modifiée : une modification concurrente n'est pas écrasée
+        Integer idVehicle = transactionTemplate.execute(transaction -> {
+            Maintenance maintenance = maintenanceDAO.findForUpdate(idMaintenance).orElseThrow(MaintenanceNotFind::new);
+            if (!maintenance.getStatus().canMoveTo(status)) {
+                throw new BadRequestException("Passage du statut " + maintenance.getStatus() + " à " + status + " non autorisé.");
+            }
+            maintenance.setStatus(status);
+            if (status == MaintenanceStatus.COMPLETED) {
+                maintenance.setCompletedAt(LocalDateTime.now());
+            }
+            return maintenance.getidVehicle();
+        });
+        invalidationBus.publish(List.of(idVehicle));
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Le statut de votre maintenance a été modifié !");
+        return response;
+    }
+
+    /**
+     * Méthode pour récuperer l'historique des maintenances archivées, des plus récentes aux plus anciennes
+     *
+     * @param page numéro de page
+     * @param size taille de la page
+     * @return réponse
+     */
+    public List<MaintenanceArchive> maintenanceHistory(int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new InvalidPagination(MAX_HISTORY_PAGE_SIZE);
         }
+        return maintenanceArchiveDAO.findAll(PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "archivedAt", "id"))).getContent();
+    }
+
+    /**
+     * Méthode pour récuperer l'historique des maintenances archivées d'un vehicule
+     *
+     * @param idVehicle id du vehicule
+     * @return réponse
+     */
+    public List<MaintenanceArchive> maintenanceHistoryWithVehicle(int idVehicle) {
+        return maintenanceArchiveDAO.findByIdVehicle(idVehicle);
+    }
+
+    /**
+     * Méthode pour récuperer les statistiques des maintenances
+     *
+     * @return compteurs par type de vehicule, par soucis et par jour
+     */
+    public Map<StatisticDimension, Map<String, Long>> maintenanceStatistics() {
+        return maintenanceStatistics.statistics();
+    }
+
+    /**
+     * Méthode pour recalculer les statistiques depuis les tables de maintenances
+     *
+     * @return réponse
+     */
+    public Map<String, Object> rebuildStatisticsService() {
+        maintenanceStatistics.rebuild();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "Les statistiques ont été recalculées !");
+        return response;
     }
 
     /***
@@ -238,10 +414,32 @@ public class MaintenanceService {
      */
     public List<Maintenance> maintenancesWithVehicle(int idVehicle) {
         try {
-            return maintenanceDAO.findByIdVehicle(idVehicle);
+            return maintenanceCache.get(idVehicle, () -> maintenanceDAO.findByIdVehicle(idVehicle));
         } catch (Exception e) {
             throw new MaintenanceNotFind();
         }
     }
 
+    /**
+     * Méthode pour récuperer les maintenances de plusieurs vehicules, groupées par vehicule.
+     * Les ids sont découpés en lots, chaque lot est servi par une seule requête IN et transmis dès qu'il est prêt.
+     *
+     * @param idVehicles    ids des vehicules
+     * @param chunkConsumer reçoit chaque lot, un vehicule sans maintenance a une liste vide
+     */
+    public void maintenancesWithVehicles(Collection<Integer> idVehicles, Consumer<Map<Integer, List<Maintenance>>> chunkConsumer) {
+        List<Integer> ids = idVehicles.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        for (int from = 0; from < ids.size(); from += VEHICLE_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + VEHICLE_CHUNK_SIZE, ids.size()));
+            Map<Integer, List<Maintenance>> grouped = new LinkedHashMap<>();
+            for (Integer idVehicle : chunk) {
+                grouped.put(idVehicle, new ArrayList<>());
+            }
+            for (Maintenance maintenance : maintenanceDAO.findByIdVehicleIn(chunk)) {
+                grouped.get(maintenance.getidVehicle()).add(maintenance);
+            }
+            chunkConsumer.accept(grouped);
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package fr.vehiclerental.maintenance.service;
+
+import fr.vehiclerental.maintenance.entity.MaintenanceStatistic;
+import fr.vehiclerental.maintenance.entity.StatisticDimension;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MaintenanceStatisticDAO extends JpaRepository<MaintenanceStatistic, Integer> {
+    List<MaintenanceStatistic> findAllByOrderByDimensionAscGroupKeyAsc();
+
+    boolean existsByDimensionAndGroupKey(StatisticDimension dimension, String groupKey);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from MaintenanceStatistic s where s.dimension = :dimension and s.groupKey = :groupKey")
+    Optional<MaintenanceStatistic> findForUpdate(@Param("dimension") StatisticDimension dimension, @Param("groupKey") String groupKey);
+
+    @Modifying
+    @Query("update MaintenanceStatistic s set s.total = s.total + :delta where s.dimension = :dimension and s.groupKey = :groupKey")
+    int increment(@Param("dimension") StatisticDimension dimension, @Param("groupKey") String groupKey, @Param("delta") long delta);
+}
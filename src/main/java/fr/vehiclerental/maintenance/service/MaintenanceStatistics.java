@@ -0,0 +1,206 @@
+package fr.vehiclerental.maintenance.service;
+
+import fr.vehiclerental.maintenance.entity.Maintenance;
+import fr.vehiclerental.maintenance.entity.MaintenanceStatistic;
+import fr.vehiclerental.maintenance.entity.StatisticDimension;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compteurs agrégés des maintenances (par type de vehicule, par soucis et par jour de création),
+ * persistés dans la table MaintenanceStatistic pour être partagés entre instances.
+ * Ils sont mis à jour dans la transaction de chaque ajout, modification et suppression,
+ * et l'historique archivé reste compté.
+ * Les lignes de compteur sont créées avant la transaction métier (prepare) et ne sont jamais supprimées,
+ * la transaction métier ne fait donc que des mises à jour, toujours dans le même ordre.
+ */
+@Slf4j
+@Component
+public class MaintenanceStatistics {
+    private final MaintenanceStatisticDAO maintenanceStatisticDAO;
+    private final MaintenanceDAO maintenanceDAO;
+    private final TransactionTemplate transactionTemplate;
+    // Groupes dont la ligne existe déjà, pour éviter une requête par écriture
+    private final Set<Group> knownGroups = ConcurrentHashMap.newKeySet();
+
+    public MaintenanceStatistics(MaintenanceStatisticDAO maintenanceStatisticDAO,
+                                 MaintenanceDAO maintenanceDAO,
+                                 PlatformTransactionManager transactionManager) {
+        this.maintenanceStatisticDAO = maintenanceStatisticDAO;
+        this.maintenanceDAO = maintenanceDAO;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Méthode pour créer les compteurs d'une maintenance avant son écriture, à appeler hors transaction :
+     * la transaction métier n'a ainsi jamais besoin d'une deuxième connexion
+     *
+     * @param maintenance maintenance qui va être ajoutée ou modifiée
+     */
+    public void prepare(Maintenance maintenance) {
+        this.groupsOf(maintenance).forEach(this::ensure);
+    }
+
+    /**
+     * Méthode pour compter (ou décompter) une maintenance dans tous ses groupes, à appeler dans une transaction
+     *
+     * @param maintenance maintenance ajoutée ou supprimée
+     * @param delta       1 pour un ajout, -1 pour une suppression
+     */
+    public void record(Maintenance maintenance, long delta) {
+        SortedMap<Group, Long> deltas = new TreeMap<>();
+        this.groupsOf(maintenance).forEach(group -> deltas.merge(group, delta, Long::sum));
+        this.apply(deltas);
+    }
+
+    /**
+     * Méthode pour déplacer une maintenance modifiée d'un groupe à l'autre, à appeler dans une transaction.
+     * Le jour de création ne change pas avec une modification.
+     *
+     * @param previousVehicleType      type du vehicule avant modification
+     * @param previousIdUnavailability soucis avant modification
+     * @param maintenance              maintenance modifiée
+     */
+    public void move(String previousVehicleType, int previousIdUnavailability, Maintenance maintenance) {
+        SortedMap<Group, Long> deltas = new TreeMap<>();
+        if (!Objects.equals(previousVehicleType, maintenance.getVehicleType())) {
+            this.add(deltas, StatisticDimension.VEHICLE_TYPE, previousVehicleType, -1);
+            this.add(deltas, StatisticDimension.VEHICLE_TYPE, maintenance.getVehicleType(), 1);
+        }
+        if (previousIdUnavailability != maintenance.getIdUnavailability()) {
+            this.add(deltas, StatisticDimension.UNAVAILABILITY, String.valueOf(previousIdUnavailability), -1);
+            this.add(deltas, StatisticDimension.UNAVAILABILITY, String.valueOf(maintenance.getIdUnavailability()), 1);
+        }
+        this.apply(deltas);
+    }
+
+    /**
+     * Méthode pour lire les statistiques, en un seul parcours de la table des compteurs
+     *
+     * @return compteurs par dimension puis par groupe
+     */
+    public Map<StatisticDimension, Map<String, Long>> statistics() {
+        Map<StatisticDimension, Map<String, Long>> statistics = new EnumMap<>(StatisticDimension.class);
+        for (StatisticDimension dimension : StatisticDimension.values()) {
+            statistics.put(dimension, new LinkedHashMap<>());
+        }
+        for (MaintenanceStatistic statistic : maintenanceStatisticDAO.findAllByOrderByDimensionAscGroupKeyAsc()) {
+            if (statistic.getTotal() != 0) {
+                statistics.get(statistic.getDimension()).put(statistic.getGroupKey(), statistic.getTotal());
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Méthode pour recalculer tous les compteurs depuis les tables Maintenance et MaintenanceArchive.
+     * Tous les compteurs sont verrouillés avant le recalcul, un par un dans l'ordre des écritures (Group) :
+     * l'ordre de la base dépend de sa collation et pourrait croiser celui des écritures.
+     * Les écritures déjà validées sont comptées par le GROUP BY, les suivantes attendent la fin du recalcul pour appliquer leur delta.
+     * Un compteur créé après le verrou part de zéro et ne reçoit que les deltas des écritures suivantes, il est laissé tel quel.
+     */
+    public void rebuild() {
+        this.totals().keySet().forEach(this::ensure);
+        transactionTemplate.executeWithoutResult(status -> {
+            SortedSet<Group> groups = new TreeSet<>();
+            for (MaintenanceStatistic statistic : maintenanceStatisticDAO.findAll()) {
+                groups.add(new Group(statistic.getDimension(), statistic.getGroupKey()));
+            }
+            List<MaintenanceStatistic> rows = new ArrayList<>();
+            for (Group group : groups) {
+                maintenanceStatisticDAO.findForUpdate(group.dimension(), group.groupKey()).ifPresent(rows::add);
+            }
+            Map<Group, Long> totals = this.totals();
+            for (MaintenanceStatistic row : rows) {
+                row.setTotal(totals.getOrDefault(new Group(row.getDimension(), row.getGroupKey()), 0L));
+            }
+        });
+    }
+
+    /**
+     * Méthode pour compter les maintenances par groupe, une requête par dimension sur les deux tables à la fois
+     *
+     * @return total par groupe
+     */
+    private Map<Group, Long> totals() {
+        Map<Group, Long> totals = new HashMap<>();
+        this.sum(totals, StatisticDimension.VEHICLE_TYPE, maintenanceDAO.countByVehicleType());
+        this.sum(totals, StatisticDimension.UNAVAILABILITY, maintenanceDAO.countByUnavailability());
+        this.sum(totals, StatisticDimension.DAY, maintenanceDAO.countByDay());
+        return totals;
+    }
+
+    private void sum(Map<Group, Long> totals, StatisticDimension dimension, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            totals.merge(new Group(dimension, String.valueOf(row[0])), ((Number) row[1]).longValue(), Long::sum);
+        }
+    }
+
+    private List<Group> groupsOf(Maintenance maintenance) {
+        List<Group> groups = new ArrayList<>();
+        if (maintenance.getVehicleType() != null) {
+            groups.add(new Group(StatisticDimension.VEHICLE_TYPE, maintenance.getVehicleType()));
+        }
+        groups.add(new Group(StatisticDimension.UNAVAILABILITY, String.valueOf(maintenance.getIdUnavailability())));
+        if (maintenance.getCreatedAt() != null) {
+            groups.add(new Group(StatisticDimension.DAY, maintenance.getCreatedAt().toLocalDate().toString()));
+        }
+        return groups;
+    }
+
+    private void add(SortedMap<Group, Long> deltas, StatisticDimension dimension, String groupKey, long delta) {
+        if (groupKey != null) {
+            deltas.merge(new Group(dimension, groupKey), delta, Long::sum);
+        }
+    }
+
+    /**
+     * Méthode pour appliquer les deltas triés par groupe : deux transactions verrouillent leurs compteurs dans le même ordre
+     *
+     * @param deltas deltas par groupe
+     */
+    private void apply(SortedMap<Group, Long> deltas) {
+        deltas.forEach((group, delta) -> {
+            if (delta != 0 && maintenanceStatisticDAO.increment(group.dimension(), group.groupKey(), delta) == 0) {
+                log.warn("Statistic {} {} missing, counters need a rebuild", group.dimension(), group.groupKey());
+            }
+        });
+    }
+
+    /**
+     * Méthode pour créer un compteur à zéro s'il n'existe pas, dans une transaction courte.
+     * Si une autre requête l'a créé en même temps, la contrainte unique échoue et le compteur existe.
+     *
+     * @param group groupe du compteur
+     */
+    private void ensure(Group group) {
+        if (knownGroups.contains(group)) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!maintenanceStatisticDAO.existsByDimensionAndGroupKey(group.dimension(), group.groupKey())) {
+                    maintenanceStatisticDAO.saveAndFlush(new MaintenanceStatistic(group.dimension(), group.groupKey(), 0));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Compteur déjà créé par une requête concurrente
+        }
+        knownGroups.add(group);
+    }
+
+    // Ordre de verrouillage des compteurs, le même pour les écritures et le recalcul
+    private record Group(StatisticDimension dimension, String groupKey) implements Comparable<Group> {
+        @Override
+        public int compareTo(Group other) {
+            int byDimension = dimension.name().compareTo(other.dimension.name());
+            return byDimension != 0 ? byDimension : groupKey.compareTo(other.groupKey);
+        }
+    }
+}
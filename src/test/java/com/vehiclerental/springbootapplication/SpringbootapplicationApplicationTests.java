@@ -1,9 +1,12 @@
 package com.vehiclerental.springbootapplication;
 
+import fr.vehiclerental.maintenance.SpringbootApplication;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
-@SpringBootTest
+@SpringBootTest(classes = SpringbootApplication.class)
+@ActiveProfiles("test")
 class SpringbootapplicationApplicationTests {
 
 	@Test
@@ -0,0 +1,96 @@
+package fr.vehiclerental.maintenance;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Faux services Vehicle, Unavailability et Reservation sur un port local, avec une latence réglable par api.
+ * Les vehicules pairs sont des "truck", les impairs des "car" ; un soucis accepte les deux types.
+ */
+public class DownstreamStub implements AutoCloseable {
+    public static final String VEHICLES = "/vehicles/";
+    public static final String UNAVAILABILITY = "/unavailability/";
+    public static final String RESERVATIONS = "/reservations/vehicle/";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Long> delays = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+    private final Set<Integer> missingVehicles = ConcurrentHashMap.newKeySet();
+
+    public DownstreamStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        server.setExecutor(executor);
+        server.createContext(VEHICLES, exchange -> this.respond(exchange, VEHICLES, id -> missingVehicles.contains(id)
+                ? "[]"
+                : "[{\"id\":" + id + ",\"type\":\"" + typeOf(id) + "\",\"registration\":\"AB-" + id + "\"}]"));
+        server.createContext(UNAVAILABILITY, exchange -> this.respond(exchange, UNAVAILABILITY, id ->
+                "[{\"id\":" + id + ",\"typeVehicle\":\"car truck\",\"description\":\"Pneu\",\"time\":2}]"));
+        server.createContext(RESERVATIONS, exchange -> this.respond(exchange, RESERVATIONS, id -> "[]"));
+        server.start();
+    }
+
+    public static String typeOf(int idVehicle) {
+        return idVehicle % 2 == 0 ? "truck" : "car";
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public DownstreamStub delay(String api, long millis) {
+        delays.put(api, millis);
+        return this;
+    }
+
+    public DownstreamStub delayAll(long millis) {
+        return this.delay(VEHICLES, millis).delay(UNAVAILABILITY, millis).delay(RESERVATIONS, millis);
+    }
+
+    public DownstreamStub missingVehicle(int idVehicle) {
+        missingVehicles.add(idVehicle);
+        return this;
+    }
+
+    public int calls(String api) {
+        return calls.computeIfAbsent(api, key -> new AtomicInteger()).get();
+    }
+
+    private void respond(HttpExchange exchange, String api, java.util.function.IntFunction<String> body) throws IOException {
+        calls.computeIfAbsent(api, key -> new AtomicInteger()).incrementAndGet();
+        try {
+            long delay = delays.getOrDefault(api, 0L);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            int id = Integer.parseInt(exchange.getRequestURI().getPath().substring(api.length()));
+            byte[] bytes = body.apply(id).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
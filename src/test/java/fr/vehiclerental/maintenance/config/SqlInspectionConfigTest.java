@@ -0,0 +1,47 @@
+package fr.vehiclerental.maintenance.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import fr.vehiclerental.maintenance.SpringbootApplication;
+import fr.vehiclerental.maintenance.diagnostic.InspectingDataSource;
+import fr.vehiclerental.maintenance.diagnostic.SqlInspectionFilter;
+import fr.vehiclerental.maintenance.diagnostic.SqlStatistics;
+import fr.vehiclerental.maintenance.diagnostic.SqlStatisticsEndpoint;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlInspectionConfigTest {
+
+    private static ConfigurableApplicationContext start(String... args) {
+        return new SpringApplicationBuilder(SpringbootApplication.class)
+                .profiles("test")
+                .run(args);
+    }
+
+    @Test
+    void closingTheContextClosesTheWrappedPool() {
+        ConfigurableApplicationContext context = start("--server.port=0");
+        DataSource dataSource = context.getBean(DataSource.class);
+        assertInstanceOf(InspectingDataSource.class, dataSource);
+        HikariDataSource pool = (HikariDataSource) ((InspectingDataSource) dataSource).getTargetDataSource();
+        assertFalse(pool.isClosed());
+
+        context.close();
+
+        assertTrue(pool.isClosed());
+    }
+
+    @Test
+    void disabledInspectionCreatesNoneOfItsBeans() {
+        try (ConfigurableApplicationContext context = start("--server.port=0", "--sql.inspection.enabled=false")) {
+            assertTrue(context.getBeansOfType(SqlStatistics.class).isEmpty());
+            assertTrue(context.getBeansOfType(SqlInspectionFilter.class).isEmpty());
+            assertTrue(context.getBeansOfType(SqlStatisticsEndpoint.class).isEmpty());
+            assertInstanceOf(HikariDataSource.class, context.getBean(DataSource.class));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package fr.vehiclerental.maintenance.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.vehiclerental.maintenance.entity.Maintenance;
+import fr.vehiclerental.maintenance.service.MaintenanceDAO;
+import fr.vehiclerental.maintenance.service.MaintenanceService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BulkVehicleLookupTest {
+    private static final int VEHICLES = 200;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MaintenanceDAO maintenanceDAO;
+
+    @MockitoSpyBean
+    MaintenanceService maintenanceService;
+
+    @BeforeEach
+    void setUp() {
+        maintenanceDAO.deleteAllInBatch();
+        List<Maintenance> maintenances = new ArrayList<>();
+        // Deux maintenances par vehicule de 1 à VEHICLES, aucune pour les autres ids
+        for (int idVehicle = 1; idVehicle <= VEHICLES; idVehicle++) {
+            for (int idUnavailability = 1; idUnavailability <= 2; idUnavailability++) {
+                Maintenance maintenance = new Maintenance();
+                maintenance.setidVehicle(idVehicle);
+                maintenance.setIdUnavailability(idUnavailability);
+                maintenances.add(maintenance);
+            }
+        }
+        maintenanceDAO.saveAll(maintenances);
+    }
+
+    private JsonNode bulk(Collection<Integer> idVehicles) throws Exception {
+        String body = mockMvc.perform(post("/maintenance/vehicles").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(idVehicles)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private JsonNode single(int idVehicle) throws Exception {
+        String body = mockMvc.perform(get("/maintenance/vehicle/" + idVehicle))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    @Test
+    void groupsMaintenancesByVehicleIncludingVehiclesWithout() throws Exception {
+        JsonNode result = bulk(List.of(3, 1, 9999, 3));
+
+        assertEquals(List.of("1", "3", "9999"), iterableToList(result.fieldNames()));
+        assertEquals(2, result.get("1").size());
+        assertEquals(2, result.get("3").size());
+        assertEquals(0, result.get("9999").size());
+        result.get("3").forEach(maintenance -> assertEquals(3, maintenance.get("idVehicle").asInt()));
+    }
+
+    @Test
+    void idSetsLargerThanOneChunkAreAllReturned() throws Exception {
+        List<Integer> ids = IntStream.rangeClosed(1, 1200).boxed().toList();
+
+        JsonNode result = bulk(ids);
+
+        assertEquals(1200, result.size());
+        assertEquals(2, result.get("200").size());
+        assertEquals(0, result.get("1200").size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failureAfterFirstChunkLeavesTheJsonIncomplete() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Map<Integer, List<Maintenance>>> consumer = invocation.getArgument(1);
+            consumer.accept(Map.of(1, List.of()));
+            throw new IllegalStateException("database gone");
+        }).when(maintenanceService).maintenancesWithVehicles(any(), any());
+
+        String body = mockMvc.perform(post("/maintenance/vehicles").contentType(MediaType.APPLICATION_JSON).content("[1, 2]"))
+                .andReturn().getResponse().getContentAsString();
+
+        // Le premier lot est parti, mais l'objet ne doit pas avoir été refermé par le générateur
+        assertTrue(body.startsWith("{\"1\":[]"), body);
+        assertFalse(body.startsWith("{\"1\":[]}"), "stream closed as if complete: " + body);
+        assertThrows(JsonProcessingException.class,
+                () -> objectMapper.reader().with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS).readTree(body), body);
+    }
+
+    @Test
+    void failureBeforeFirstChunkReturnsAnErrorStatus() throws Exception {
+        doThrow(new CannotCreateTransactionException("pool exhausted")).when(maintenanceService).maintenancesWithVehicles(any(), any());
+
+        // Vrai serveur : MockMvc ne valide pas la réponse quand le flux est fermé, Tomcat si
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/maintenance/vehicles"))
+                .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString("[1, 2]"))
+                .build();
+        HttpResponse<String> response;
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+
+        assertEquals(503, response.statusCode(), response.body());
+        assertFalse(objectMapper.readTree(response.body()).get("success").asBoolean(), response.body());
+    }
+
+    @Test
+    void emptyIdSetReturnsAnEmptyObject() throws Exception {
+        assertEquals(0, bulk(List.of()).size());
+    }
+
+    @Test
+    void oneBulkCallReturnsTheSameDataAsOneCallPerVehicle() throws Exception {
+        List<Integer> ids = IntStream.rangeClosed(1, VEHICLES).boxed().toList();
+        // Chauffe des deux chemins sur des vehicules sans maintenance
+        bulk(List.of(100_001, 100_002));
+        single(100_003);
+
+        long start = System.nanoTime();
+        Map<Integer, JsonNode> singles = new TreeMap<>();
+        for (int idVehicle : ids) {
+            singles.put(idVehicle, single(idVehicle));
+        }
+        long singlesMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        start = System.nanoTime();
+        JsonNode bulk = bulk(ids);
+        long bulkMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        log.info("{} vehicles: {} single calls in {} ms, one bulk call in {} ms", VEHICLES, VEHICLES, singlesMillis, bulkMillis);
+        assertEquals(VEHICLES, bulk.size());
+        singles.forEach((idVehicle, maintenances) -> assertEquals(maintenances, bulk.get(String.valueOf(idVehicle))));
+    }
+
+    private static List<String> iterableToList(Iterator<String> iterator) {
+        List<String> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+}
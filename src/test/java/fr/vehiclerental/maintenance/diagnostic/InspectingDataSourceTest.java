@@ -0,0 +1,65 @@
+package fr.vehiclerental.maintenance.diagnostic;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InspectingDataSourceTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void statementsAreMeasuredWithRowsAndParameterTypes() throws Exception {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:inspecting-data-source");
+        // Seuil lent à 0 : toutes les requêtes sont capturées avec le type de leurs paramètres
+        SqlStatistics sqlStatistics = new SqlStatistics(0, 10, 100);
+        InspectingDataSource dataSource = new InspectingDataSource(h2, sqlStatistics);
+
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table maintenance (id int primary key, status varchar(16))");
+            statement.execute("insert into maintenance values (1, 'SCHEDULED'), (2, 'COMPLETED'), (3, 'COMPLETED')");
+            try (PreparedStatement query = connection.prepareStatement("select id from maintenance where status = ? and id > ?")) {
+                query.setString(1, "COMPLETED");
+                query.setInt(2, 0);
+                try (ResultSet resultSet = query.executeQuery()) {
+                    while (resultSet.next()) {
+                        assertTrue(resultSet.getInt(1) > 1);
+                    }
+                }
+            }
+        }
+
+        Map<String, Object> select = ((List<Map<String, Object>>) sqlStatistics.snapshot().get("statements")).stream()
+                .filter(statement -> ((String) statement.get("sql")).startsWith("select"))
+                .findFirst().orElseThrow();
+        assertEquals("select id from maintenance where status = ? and id > ?", select.get("sql"));
+        assertEquals(1L, select.get("count"));
+        assertEquals(2L, select.get("rows"));
+        List<SqlStatistics.SlowStatement> slow = (List<SqlStatistics.SlowStatement>) sqlStatistics.snapshot().get("slowStatements");
+        assertEquals("(String, Int)", slow.getLast().parameters());
+        assertEquals("insert into maintenance values (?, ?), (?, ?), (?, ?)", slow.get(1).sql());
+    }
+
+    @Test
+    void closeIsForwardedToThePool() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:inspecting-data-source-close");
+        InspectingDataSource dataSource = new InspectingDataSource(pool, new SqlStatistics(200, 10, 100));
+        try (Connection connection = dataSource.getConnection()) {
+            assertTrue(connection.isValid(1));
+        }
+
+        dataSource.close();
+
+        assertTrue(pool.isClosed());
+    }
+}
@@ -0,0 +1,115 @@
+package fr.vehiclerental.maintenance.diagnostic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlStatisticsTest {
+    private static final long MILLIS = 1_000_000L;
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> statements(SqlStatistics sqlStatistics) {
+        return (List<Map<String, Object>>) sqlStatistics.snapshot().get("statements");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> captured(SqlStatistics sqlStatistics, String key) {
+        return (List<T>) sqlStatistics.snapshot().get(key);
+    }
+
+    @Test
+    void shapeReplacesLiteralsAndWhitespace() {
+        SqlStatistics sqlStatistics = new SqlStatistics(200, 10, 100);
+
+        assertEquals("select m1_0.id from maintenance m1_0 where m1_0.status = ? and m1_0.id_vehicle = ? and m1_0.note = ?",
+                sqlStatistics.shapeOf("select m1_0.id\n  from maintenance m1_0\twhere m1_0.status = 'COMPLETED' and m1_0.id_vehicle = 42 and m1_0.note = 'it''s'"));
+        assertEquals("<batch>", sqlStatistics.shapeOf(null));
+    }
+
+    @Test
+    void shapeFoldsInListsOfAnyLength() {
+        SqlStatistics sqlStatistics = new SqlStatistics(200, 10, 100);
+
+        String expected = "select * from maintenance where id_vehicle in (?...)";
+        assertEquals(expected, sqlStatistics.shapeOf("select * from maintenance where id_vehicle in (?)"));
+        assertEquals(expected, sqlStatistics.shapeOf("select * from maintenance where id_vehicle in (?, ?, ?)"));
+        assertEquals(expected, sqlStatistics.shapeOf("select * from maintenance where id_vehicle IN (1,2,3,4)"));
+    }
+
+    @Test
+    void recordAggregatesByShape() {
+        SqlStatistics sqlStatistics = new SqlStatistics(200, 10, 100);
+
+        SqlStatistics.ShapeStatistics first = sqlStatistics.record("select * from maintenance where id = 1", "()", 3 * MILLIS);
+        SqlStatistics.ShapeStatistics second = sqlStatistics.record("select * from maintenance where id = 2", "()", 7 * MILLIS);
+        second.addRow();
+        second.addRow();
+        sqlStatistics.record("delete from maintenance where id = ?", "(Int)", MILLIS);
+
+        assertSame(first, second);
+        List<Map<String, Object>> statements = statements(sqlStatistics);
+        assertEquals(2, statements.size());
+        Map<String, Object> select = statements.getFirst();
+        assertEquals("select * from maintenance where id = ?", select.get("sql"));
+        assertEquals(2L, select.get("count"));
+        assertEquals(10L, select.get("totalMs"));
+        assertEquals(7L, select.get("maxMs"));
+        assertEquals(2L, select.get("rows"));
+
+        sqlStatistics.reset();
+        assertTrue(statements(sqlStatistics).isEmpty());
+    }
+
+    @Test
+    void slowStatementsAreCapturedWithTheirParameterTypes() {
+        SqlStatistics sqlStatistics = new SqlStatistics(5, 10, 2);
+
+        sqlStatistics.record("select * from maintenance where id = ?", "(Int)", MILLIS);
+        assertTrue(captured(sqlStatistics, "slowStatements").isEmpty());
+
+        sqlStatistics.record("select * from maintenance where id = ?", "(Int)", 6 * MILLIS);
+        sqlStatistics.record("select * from maintenance where status = ?", "(String)", 7 * MILLIS);
+        sqlStatistics.record("select * from maintenance where id_vehicle = ?", "(Int)", 8 * MILLIS);
+
+        List<SqlStatistics.SlowStatement> slow = captured(sqlStatistics, "slowStatements");
+        assertEquals(2, slow.size(), "only the last max-captured statements are kept");
+        assertEquals("select * from maintenance where status = ?", slow.getFirst().sql());
+        assertEquals("(String)", slow.getFirst().parameters());
+        assertEquals(8L, slow.getLast().durationMs());
+    }
+
+    @Test
+    void endRequestFlagsShapesRepeatedFromTheThreshold() {
+        SqlStatistics sqlStatistics = new SqlStatistics(200, 3, 100);
+
+        sqlStatistics.beginRequest();
+        for (int id = 1; id <= 3; id++) {
+            sqlStatistics.record("select * from maintenance where id_vehicle = " + id, "()", MILLIS);
+        }
+        sqlStatistics.record("select * from vehicle where id = 1", "()", MILLIS);
+        sqlStatistics.record("select * from vehicle where id = 2", "()", MILLIS);
+        sqlStatistics.endRequest("GET /maintenance");
+
+        List<SqlStatistics.NPlusOne> nPlusOnes = captured(sqlStatistics, "nPlusOne");
+        assertEquals(1, nPlusOnes.size());
+        assertEquals("GET /maintenance", nPlusOnes.getFirst().request());
+        assertEquals("select * from maintenance where id_vehicle = ?", nPlusOnes.getFirst().sql());
+        assertEquals(3, nPlusOnes.getFirst().executions());
+    }
+
+    @Test
+    void statementsOutsideAnHttpRequestAreNotCountedForNPlusOne() {
+        SqlStatistics sqlStatistics = new SqlStatistics(200, 2, 100);
+
+        for (int id = 1; id <= 5; id++) {
+            sqlStatistics.record("select * from maintenance where id = " + id, "()", MILLIS);
+        }
+        sqlStatistics.endRequest("GET /maintenance");
+
+        assertTrue(captured(sqlStatistics, "nPlusOne").isEmpty());
+        assertEquals(5L, statements(sqlStatistics).getFirst().get("count"));
+    }
+}
@@ -0,0 +1,222 @@
+package fr.vehiclerental.maintenance.invalidation;
+
+import fr.vehiclerental.maintenance.DownstreamStub;
+import fr.vehiclerental.maintenance.SpringbootApplication;
+import fr.vehiclerental.maintenance.entity.Maintenance;
+import fr.vehiclerental.maintenance.service.MaintenanceCache;
+import fr.vehiclerental.maintenance.service.MaintenanceDAO;
+import fr.vehiclerental.maintenance.service.MaintenanceService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Deux instances du service dans la même JVM, sur la même base H2, qui se trouvent via SimpleDiscoveryClient
+ */
+class InvalidationBusMultiInstanceTest {
+    private static final String SECRET = "test-secret";
+
+    private static DownstreamStub stub;
+    private static ConfigurableApplicationContext instanceA;
+    private static ConfigurableApplicationContext instanceB;
+    private static int portB;
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(int port, int portA, int portB, String ddlAuto) {
+        String service = "spring.cloud.discovery.client.simple.instances.vehicleRentalEntretien";
+        return new SpringApplicationBuilder(SpringbootApplication.class)
+                .profiles("test")
+                .run("--server.port=" + port,
+                        "--spring.datasource.url=jdbc:h2:mem:invalidation-bus;DB_CLOSE_DELAY=-1;MODE=LEGACY",
+                        "--spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "--" + service + "[0].uri=http://localhost:" + portA,
+                        "--" + service + "[0].instance-id=a",
+                        "--" + service + "[1].uri=http://localhost:" + portB,
+                        "--" + service + "[1].instance-id=b",
+                        "--invalidation.secret=" + SECRET,
+                        "--downstream.vehicle-url=" + stub.url(),
+                        "--downstream.unavailability-url=" + stub.url(),
+                        "--downstream.reservation-url=" + stub.url());
+    }
+
+    @BeforeAll
+    static void startInstances() throws IOException {
+        stub = new DownstreamStub();
+        int portA = freePort();
+        portB = freePort();
+        instanceA = start(portA, portA, portB, "create");
+        instanceB = start(portB, portA, portB, "none");
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        if (instanceB != null) {
+            instanceB.close();
+        }
+        if (instanceA != null) {
+            instanceA.close();
+        }
+        stub.close();
+    }
+
+    @BeforeEach
+    void reset() {
+        instanceA.getBean(MaintenanceDAO.class).deleteAllInBatch();
+        instanceA.getBean(MaintenanceCache.class).clear();
+        instanceB.getBean(MaintenanceCache.class).clear();
+    }
+
+    private Maintenance insert(int idVehicle) {
+        Maintenance maintenance = new Maintenance();
+        maintenance.setidVehicle(idVehicle);
+        maintenance.setIdUnavailability(1);
+        return instanceA.getBean(MaintenanceDAO.class).save(maintenance);
+    }
+
+    private void sendToB(InvalidationMessage message, String secret) {
+        HttpHeaders headers = new HttpHeaders();
+        if (secret != null) {
+            headers.set(InvalidationBus.SECRET_HEADER, secret);
+        }
+        restTemplate.postForLocation("http://localhost:" + portB + InvalidationBus.INVALIDATION_PATH, new HttpEntity<>(message, headers));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String description) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting: " + description);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void editOnOneInstanceEvictsTheOtherInstanceCache() throws InterruptedException {
+        Maintenance maintenance = insert(1);
+        MaintenanceService serviceB = instanceB.getBean(MaintenanceService.class);
+        MaintenanceCache cacheB = instanceB.getBean(MaintenanceCache.class);
+        assertEquals(1, serviceB.maintenancesWithVehicle(1).size());
+        assertTrue(cacheB.contains(1));
+
+        Maintenance request = new Maintenance();
+        request.setidVehicle(3);
+        request.setIdUnavailability(1);
+        instanceA.getBean(MaintenanceService.class).editMaintenanceService(maintenance.getId(), request);
+
+        awaitTrue(() -> !cacheB.contains(1), "instance B evicts vehicle 1");
+        assertTrue(serviceB.maintenancesWithVehicle(1).isEmpty());
+        assertEquals(1, serviceB.maintenancesWithVehicle(3).size());
+    }
+
+    @Test
+    void sequenceGapFlushesTheWholeCache() {
+        insert(1);
+        insert(5);
+        MaintenanceService serviceB = instanceB.getBean(MaintenanceService.class);
+        MaintenanceCache cacheB = instanceB.getBean(MaintenanceCache.class);
+        serviceB.maintenancesWithVehicle(1);
+        serviceB.maintenancesWithVehicle(5);
+        String origin = UUID.randomUUID().toString();
+
+        sendToB(new InvalidationMessage(origin, 1, List.of(42)), SECRET);
+        assertTrue(cacheB.contains(1));
+        assertTrue(cacheB.contains(5));
+
+        // Le message 2 est perdu
+        sendToB(new InvalidationMessage(origin, 3, List.of(42)), SECRET);
+        assertFalse(cacheB.contains(1));
+        assertFalse(cacheB.contains(5));
+    }
+
+    @Test
+    void lateMessageEvictsItsVehiclesWithoutFlushing() {
+        insert(1);
+        insert(5);
+        MaintenanceService serviceB = instanceB.getBean(MaintenanceService.class);
+        MaintenanceCache cacheB = instanceB.getBean(MaintenanceCache.class);
+        String origin = UUID.randomUUID().toString();
+        sendToB(new InvalidationMessage(origin, 1, List.of(42)), SECRET);
+        sendToB(new InvalidationMessage(origin, 3, List.of(42)), SECRET);
+        serviceB.maintenancesWithVehicle(1);
+        serviceB.maintenancesWithVehicle(5);
+
+        // Le message 2 arrive après le 3
+        sendToB(new InvalidationMessage(origin, 2, List.of(1)), SECRET);
+
+        assertFalse(cacheB.contains(1));
+        assertTrue(cacheB.contains(5));
+        assertEquals(3, instanceB.getBean(InvalidationBus.class).lastSequence(origin));
+    }
+
+    @Test
+    void concurrentPublishesReachPeersInOrderWithoutFlushing() throws Exception {
+        insert(5);
+        MaintenanceCache cacheB = instanceB.getBean(MaintenanceCache.class);
+        instanceB.getBean(MaintenanceService.class).maintenancesWithVehicle(5);
+        InvalidationBus busA = instanceA.getBean(InvalidationBus.class);
+        InvalidationBus busB = instanceB.getBean(InvalidationBus.class);
+        long before = busB.lastSequence(busA.getOrigin());
+
+        int publishes = 200;
+        try (ExecutorService publishers = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < publishes; i++) {
+                int idVehicle = 1000 + i;
+                publishers.execute(() -> busA.publish(List.of(idVehicle)));
+            }
+        }
+
+        awaitTrue(() -> busB.lastSequence(busA.getOrigin()) == before + publishes, "instance B receives every publish");
+        // Aucun trou vu par B : le vehicule 5, jamais invalidé, est toujours en cache
+        assertTrue(cacheB.contains(5));
+    }
+
+    @Test
+    void messagesFromOwnOriginAreIgnored() {
+        insert(1);
+        instanceB.getBean(MaintenanceService.class).maintenancesWithVehicle(1);
+        MaintenanceCache cacheB = instanceB.getBean(MaintenanceCache.class);
+        String originB = instanceB.getBean(InvalidationBus.class).getOrigin();
+
+        sendToB(new InvalidationMessage(originB, 1, List.of(1)), SECRET);
+        sendToB(new InvalidationMessage(originB, 7, List.of(1)), SECRET);
+
+        assertTrue(cacheB.contains(1));
+    }
+
+    @Test
+    void messagesWithoutTheSharedSecretAreRefused() {
+        insert(1);
+        instanceB.getBean(MaintenanceService.class).maintenancesWithVehicle(1);
+        MaintenanceCache cacheB = instanceB.getBean(MaintenanceCache.class);
+        // Un numéro 5 d'une origine inconnue viderait tout le cache s'il était accepté
+        InvalidationMessage gap = new InvalidationMessage(UUID.randomUUID().toString(), 5, List.of(1));
+
+        assertThrows(HttpClientErrorException.Forbidden.class, () -> sendToB(gap, null));
+        assertThrows(HttpClientErrorException.Forbidden.class, () -> sendToB(gap, "wrong"));
+        assertTrue(cacheB.contains(1));
+    }
+}
@@ -0,0 +1,110 @@
+package fr.vehiclerental.maintenance.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+    private static final long FAST = 1_000_000L;
+    private static final long SLOW = 100_000_000L;
+
+    /**
+     * Remplit le limiteur puis libère toutes les places avec une latence rapide
+     */
+    private void fastRound(AdaptiveConcurrencyLimiter limiter) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        for (int i = 0; i < acquired; i++) {
+            limiter.release(FAST);
+        }
+    }
+
+    @Test
+    void tryAcquireRejectsAndCountsOnceLimitIsReached() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 10, 50, 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getShed());
+    }
+
+    @Test
+    void fastRequestsUnderLoadIncreaseLimitAdditively() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 1, 100, 50, 0.5);
+
+        for (int round = 0; round < 5; round++) {
+            fastRound(limiter);
+        }
+
+        assertTrue(limiter.getLimit() > 4);
+        assertTrue(limiter.getLimit() <= 9, "increase must stay additive, got " + limiter.getLimit());
+    }
+
+    @Test
+    void fastRequestsWithLowUtilisationDoNotIncreaseLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1, 100, 50, 0.5);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(FAST);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void limitNeverExceedsMax() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 1, 8, 50, 0.5);
+
+        for (int round = 0; round < 200; round++) {
+            fastRound(limiter);
+        }
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void slowRequestDecreasesLimitMultiplicativelyOncePerWindow() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 20, 1, 100, 50, 0.5);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW);
+        assertEquals(10, limiter.getLimit());
+
+        // Même fenêtre de latence : les autres requêtes lentes de la rafale ne réduisent plus
+        limiter.tryAcquire();
+        limiter.release(SLOW);
+        limiter.tryAcquire();
+        limiter.release(SLOW);
+        assertEquals(10, limiter.getLimit());
+
+        Thread.sleep(60);
+        limiter.tryAcquire();
+        limiter.release(SLOW);
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    void limitNeverGoesBelowMin() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 8, 3, 100, 10, 0.5);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.release(SLOW);
+            Thread.sleep(15);
+        }
+
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    void initialLimitIsClampedToBounds() {
+        assertEquals(10, new AdaptiveConcurrencyLimiter("test", 50, 1, 10, 50, 0.5).getLimit());
+        assertEquals(3, new AdaptiveConcurrencyLimiter("test", 1, 3, 10, 50, 0.5).getLimit());
+    }
+}
@@ -0,0 +1,80 @@
+package fr.vehiclerental.maintenance.limiter;
+
+import fr.vehiclerental.maintenance.service.MaintenanceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "limiter.min=1",
+        "limiter.read.initial=1",
+        "limiter.read.max=1",
+        "limiter.mutation.initial=1",
+        "limiter.mutation.max=1",
+        "limiter.retry-after-seconds=3"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConcurrencyLimitInterceptorTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    MaintenanceService maintenanceService;
+
+    @Test
+    void saturatedReadLimitShedsReadsButNotMutations() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(maintenanceService.oneMaintenance(anyInt())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return List.of();
+        });
+        when(maintenanceService.deleteMaintenanceService(anyInt())).thenReturn(Map.of("success", true));
+
+        Thread blockedRead = Thread.ofPlatform().start(() -> {
+            try {
+                mockMvc.perform(get("/maintenance/1")).andExpect(status().isOk());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            mockMvc.perform(get("/maintenance"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "3"));
+            // POST en lecture seule : compte dans la limite de lecture
+            mockMvc.perform(post("/maintenance/vehicles").contentType(MediaType.APPLICATION_JSON).content("[1, 2]"))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "3"));
+            mockMvc.perform(delete("/maintenance/1"))
+                    .andExpect(status().isOk());
+        } finally {
+            release.countDown();
+            blockedRead.join(10_000);
+        }
+
+        mockMvc.perform(get("/maintenance")).andExpect(status().isOk());
+    }
+}
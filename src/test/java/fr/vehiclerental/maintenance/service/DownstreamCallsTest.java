@@ -0,0 +1,122 @@
+package fr.vehiclerental.maintenance.service;
+
+import fr.vehiclerental.maintenance.DownstreamStub;
+import fr.vehiclerental.maintenance.entity.RequiredMaintenance;
+import fr.vehiclerental.maintenance.exception.VehicleNotFind;
+import fr.vehiclerental.maintenance.invalidation.InvalidationBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DownstreamCallsTest {
+    private DownstreamStub stub;
+    private RecordingExecutor executor;
+
+    /**
+     * Exécuteur qui garde les appels soumis pour vérifier leur annulation
+     */
+    static class RecordingExecutor extends AbstractExecutorService {
+        private final ExecutorService delegate = Executors.newVirtualThreadPerTaskExecutor();
+        final List<Future<?>> submitted = new CopyOnWriteArrayList<>();
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            Future<T> future = super.submit(task);
+            submitted.add(future);
+            return future;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(command);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+
+    static MaintenanceService serviceFor(DownstreamStub stub, ExecutorService executor) {
+        MaintenanceService service = new MaintenanceService();
+        service.maintenanceDAO = mock(MaintenanceDAO.class);
+        service.maintenanceStatistics = mock(MaintenanceStatistics.class);
+        service.invalidationBus = mock(InvalidationBus.class);
+        service.transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        service.downstreamExecutor = executor;
+        service.vehicleUrl = stub.url();
+        service.unavailabilityUrl = stub.url();
+        service.reservationUrl = stub.url();
+        return service;
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new DownstreamStub();
+        executor = new RecordingExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        stub.close();
+    }
+
+    @Test
+    void addCallsTheThreeApisAndSaves() {
+        MaintenanceService service = serviceFor(stub, executor);
+
+        Map<String, Object> response = service.addMaintenanceService(new RequiredMaintenance(1, 7));
+
+        assertEquals(true, response.get("success"));
+        assertEquals(1, stub.calls(DownstreamStub.VEHICLES));
+        assertEquals(1, stub.calls(DownstreamStub.UNAVAILABILITY));
+        assertEquals(1, stub.calls(DownstreamStub.RESERVATIONS));
+        verify(service.maintenanceDAO).save(any());
+    }
+
+    @Test
+    void failingCheckCancelsTheCallsStillRunning() {
+        stub.missingVehicle(404).delay(DownstreamStub.RESERVATIONS, 3000);
+        MaintenanceService service = serviceFor(stub, executor);
+
+        long start = System.nanoTime();
+        assertThrows(VehicleNotFind.class, () -> service.addMaintenanceService(new RequiredMaintenance(404, 7)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+
+        assertTrue(elapsedMillis < 2000, "must not wait for the reservation call, took " + elapsedMillis + " ms");
+        assertEquals(3, executor.submitted.size());
+        assertTrue(executor.submitted.get(2).isCancelled(), "reservation call must be cancelled");
+        verifyNoInteractions(service.maintenanceDAO);
+    }
+}
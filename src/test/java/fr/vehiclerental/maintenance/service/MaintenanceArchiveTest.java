@@ -0,0 +1,232 @@
+package fr.vehiclerental.maintenance.service;
+
+import fr.vehiclerental.maintenance.entity.Maintenance;
+import fr.vehiclerental.maintenance.entity.MaintenanceArchive;
+import fr.vehiclerental.maintenance.entity.MaintenanceStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Slf4j
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MaintenanceArchiveTest {
+    private static final int ACTIVE_VEHICLES = 50;
+
+    @Autowired
+    MaintenanceDAO maintenanceDAO;
+
+    @Autowired
+    MaintenanceArchiveDAO maintenanceArchiveDAO;
+
+    @Autowired
+    MaintenanceArchiver maintenanceArchiver;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        maintenanceDAO.deleteAllInBatch();
+        maintenanceArchiveDAO.deleteAllInBatch();
+    }
+
+    private Maintenance maintenance(int idVehicle, MaintenanceStatus status) {
+        Maintenance maintenance = new Maintenance();
+        maintenance.setidVehicle(idVehicle);
+        maintenance.setIdUnavailability(1);
+        maintenance.setStatus(status);
+        if (status == MaintenanceStatus.COMPLETED) {
+            maintenance.setCompletedAt(LocalDateTime.now());
+        }
+        return maintenance;
+    }
+
+    private void insertCompleted(int count) {
+        List<Maintenance> history = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            history.add(maintenance(1 + i % ACTIVE_VEHICLES, MaintenanceStatus.COMPLETED));
+        }
+        maintenanceDAO.saveAll(history);
+    }
+
+    private void archiveAll() {
+        while (!maintenanceDAO.findAll().stream().filter(m -> m.getStatus() == MaintenanceStatus.COMPLETED).toList().isEmpty()) {
+            maintenanceArchiver.archiveCompleted();
+        }
+    }
+
+    /**
+     * Durée moyenne en microsecondes de findByIdVehicle sur les vehicules actifs, meilleure de 5 mesures
+     */
+    private long hotQueryMicros() {
+        long best = Long.MAX_VALUE;
+        for (int measure = 0; measure < 5; measure++) {
+            long start = System.nanoTime();
+            for (int idVehicle = 1; idVehicle <= ACTIVE_VEHICLES; idVehicle++) {
+                maintenanceDAO.findByIdVehicle(idVehicle);
+            }
+            best = Math.min(best, (System.nanoTime() - start) / 1000L / ACTIVE_VEHICLES);
+        }
+        return best;
+    }
+
+    @Test
+    void onlyCompletedMaintenancesAreArchived() {
+        Maintenance scheduled = maintenanceDAO.save(maintenance(1, MaintenanceStatus.SCHEDULED));
+        Maintenance inProgress = maintenanceDAO.save(maintenance(1, MaintenanceStatus.IN_PROGRESS));
+        Maintenance completed = maintenanceDAO.save(maintenance(1, MaintenanceStatus.COMPLETED));
+
+        maintenanceArchiver.archiveCompleted();
+
+        assertEquals(List.of(scheduled.getId(), inProgress.getId()), maintenanceDAO.findByIdVehicle(1).stream().map(Maintenance::getId).sorted().toList());
+        List<MaintenanceArchive> archived = maintenanceArchiveDAO.findByIdVehicle(1);
+        assertEquals(1, archived.size());
+        assertEquals(completed.getId(), archived.getFirst().getIdMaintenance());
+        assertNotNull(archived.getFirst().getCompletedAt());
+    }
+
+    /**
+     * Modifie l'unavailability d'une maintenance dans une transaction qui garde le verrou jusqu'au relâchement
+     */
+    private Thread holdRow(int id, CountDownLatch locked, CountDownLatch release) {
+        return Thread.ofPlatform().start(() -> transactionTemplate.executeWithoutResult(status -> {
+            Maintenance row = maintenanceDAO.findById(id).getFirst();
+            row.setIdUnavailability(99);
+            maintenanceDAO.saveAndFlush(row);
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+    }
+
+    @Test
+    void batchWaitsForAConcurrentWriteAndArchivesItsNewValues() throws Exception {
+        Maintenance edited = maintenanceDAO.save(maintenance(1, MaintenanceStatus.COMPLETED));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = this.holdRow(edited.getId(), locked, release);
+        assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+        Thread.ofPlatform().start(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        maintenanceArchiver.archiveCompleted();
+        writer.join(10_000);
+
+        List<MaintenanceArchive> archived = maintenanceArchiveDAO.findByIdVehicle(1);
+        assertEquals(1, archived.size());
+        assertEquals(99, archived.getFirst().getIdUnavailability());
+        assertEquals(0, maintenanceDAO.count());
+    }
+
+    @Test
+    void batchLeftUntouchedWhenARowStaysLocked() throws Exception {
+        Maintenance edited = maintenanceDAO.save(maintenance(1, MaintenanceStatus.COMPLETED));
+        maintenanceDAO.save(maintenance(2, MaintenanceStatus.COMPLETED));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = this.holdRow(edited.getId(), locked, release);
+        try {
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+            assertDoesNotThrow(() -> maintenanceArchiver.archiveCompleted());
+            assertEquals(0, maintenanceArchiveDAO.count());
+            assertEquals(2, maintenanceDAO.count());
+        } finally {
+            release.countDown();
+            writer.join(10_000);
+        }
+
+        maintenanceArchiver.archiveCompleted();
+        assertEquals(2, maintenanceArchiveDAO.count());
+        assertEquals(99, maintenanceArchiveDAO.findByIdVehicle(1).getFirst().getIdUnavailability());
+        assertEquals(0, maintenanceDAO.count());
+    }
+
+    @Test
+    void historyPaginationIsValidated() throws Exception {
+        mockMvc.perform(get("/maintenance/history")).andExpect(status().isOk());
+        mockMvc.perform(get("/maintenance/history").param("page", "2").param("size", "500")).andExpect(status().isOk());
+        mockMvc.perform(get("/maintenance/history").param("page", "-1")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/maintenance/history").param("size", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/maintenance/history").param("size", "501")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void hotQueryNeverReadsArchivedRows() {
+        for (int idVehicle = 1; idVehicle <= 3; idVehicle++) {
+            maintenanceDAO.save(maintenance(idVehicle, MaintenanceStatus.SCHEDULED));
+        }
+        insertCompleted(30);
+        archiveAll();
+
+        assertEquals(3, maintenanceDAO.count());
+        assertEquals(30, maintenanceArchiveDAO.count());
+        assertTrue(maintenanceDAO.findAll().stream().noneMatch(m -> m.getStatus() == MaintenanceStatus.COMPLETED));
+        for (int idVehicle = 1; idVehicle <= 3; idVehicle++) {
+            List<Maintenance> hot = maintenanceDAO.findByIdVehicle(idVehicle);
+            assertEquals(1, hot.size());
+            assertEquals(MaintenanceStatus.SCHEDULED, hot.getFirst().getStatus());
+            assertFalse(maintenanceArchiveDAO.findByIdVehicle(idVehicle).isEmpty());
+        }
+    }
+
+    /**
+     * Benchmark dépendant de la machine : il n'affiche que ses mesures et ne tourne qu'avec -Dbenchmark=true.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void hotQueryLatencyAsHistoryGrows() {
+        List<Maintenance> active = new ArrayList<>();
+        for (int idVehicle = 1; idVehicle <= ACTIVE_VEHICLES; idVehicle++) {
+            active.add(maintenance(idVehicle, MaintenanceStatus.SCHEDULED));
+        }
+        maintenanceDAO.saveAll(active);
+        // Préchauffage du JIT et du cache de requêtes avant la première mesure
+        for (int warmUp = 0; warmUp < 5; warmUp++) {
+            hotQueryMicros();
+        }
+        long baseline = hotQueryMicros();
+
+        insertCompleted(10_000);
+        long withoutSplit = hotQueryMicros();
+        archiveAll();
+        long history10k = hotQueryMicros();
+
+        insertCompleted(10_000);
+        archiveAll();
+        long history20k = hotQueryMicros();
+
+        log.info("findByIdVehicle mean: {} us active only, {} us with 10k completed rows in the hot table, "
+                + "{} us with 10k archived, {} us with 20k archived", baseline, withoutSplit, history10k, history20k);
+    }
+}
@@ -0,0 +1,59 @@
+package fr.vehiclerental.maintenance.service;
+
+import fr.vehiclerental.maintenance.entity.Maintenance;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaintenanceCacheTest {
+
+    @Test
+    void secondReadIsServedFromCache() {
+        MaintenanceCache cache = new MaintenanceCache(300);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1, () -> {
+            loads.incrementAndGet();
+            return List.of(new Maintenance());
+        });
+        cache.get(1, () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(1, loads.get());
+        assertTrue(cache.contains(1));
+    }
+
+    @Test
+    void evictDuringLoadIsNotUndone() {
+        MaintenanceCache cache = new MaintenanceCache(300);
+
+        List<Maintenance> loaded = cache.get(1, () -> {
+            // Invalidation arrivée pendant la lecture en base : le résultat lu est peut-être périmé
+            cache.evict(List.of(1));
+            return List.of(new Maintenance());
+        });
+
+        assertEquals(1, loaded.size());
+        assertFalse(cache.contains(1));
+    }
+
+    @Test
+    void expiredEntryIsReloaded() {
+        MaintenanceCache cache = new MaintenanceCache(0);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1, () -> List.of(new Maintenance(), new Maintenance()));
+        List<Maintenance> reloaded = cache.get(1, () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(1, loads.get());
+        assertTrue(reloaded.isEmpty());
+    }
+}
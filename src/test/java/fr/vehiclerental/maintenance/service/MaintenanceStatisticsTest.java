@@ -0,0 +1,282 @@
+package fr.vehiclerental.maintenance.service;
+
+import fr.vehiclerental.maintenance.DownstreamStub;
+import fr.vehiclerental.maintenance.entity.*;
+import fr.vehiclerental.maintenance.invalidation.InvalidationBus;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Les compteurs doivent toujours être égaux à un GROUP BY complet des tables Maintenance et MaintenanceArchive.
+ * Les lignes ne sont jamais supprimées directement ici : tout passe par le service pour que les compteurs suivent.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MaintenanceStatisticsTest {
+    private static final DownstreamStub STUB = stub();
+
+    @Autowired
+    MaintenanceService maintenanceService;
+
+    @Autowired
+    MaintenanceStatistics maintenanceStatistics;
+
+    @Autowired
+    MaintenanceStatisticDAO maintenanceStatisticDAO;
+
+    @Autowired
+    MaintenanceDAO maintenanceDAO;
+
+    @Autowired
+    MaintenanceArchiveDAO maintenanceArchiveDAO;
+
+    @Autowired
+    MaintenanceArchiver maintenanceArchiver;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    InvalidationBus invalidationBus;
+
+    private static DownstreamStub stub() {
+        try {
+            return new DownstreamStub();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void downstream(DynamicPropertyRegistry registry) {
+        registry.add("downstream.vehicle-url", STUB::url);
+        registry.add("downstream.unavailability-url", STUB::url);
+        registry.add("downstream.reservation-url", STUB::url);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    /**
+     * Méthode pour calculer les compteurs attendus en Java, depuis toutes les lignes des deux tables
+     */
+    private Map<StatisticDimension, Map<String, Long>> groupBy() {
+        Map<StatisticDimension, Map<String, Long>> expected = new EnumMap<>(StatisticDimension.class);
+        for (StatisticDimension dimension : StatisticDimension.values()) {
+            expected.put(dimension, new TreeMap<>());
+        }
+        for (Maintenance maintenance : maintenanceDAO.findAll()) {
+            this.count(expected, maintenance.getVehicleType(), maintenance.getIdUnavailability(), maintenance.getCreatedAt());
+        }
+        for (MaintenanceArchive archive : maintenanceArchiveDAO.findAll()) {
+            this.count(expected, archive.getVehicleType(), archive.getIdUnavailability(), archive.getCreatedAt());
+        }
+        return expected;
+    }
+
+    private void count(Map<StatisticDimension, Map<String, Long>> expected, String vehicleType, int idUnavailability, LocalDateTime createdAt) {
+        if (vehicleType != null) {
+            expected.get(StatisticDimension.VEHICLE_TYPE).merge(vehicleType, 1L, Long::sum);
+        }
+        expected.get(StatisticDimension.UNAVAILABILITY).merge(String.valueOf(idUnavailability), 1L, Long::sum);
+        expected.get(StatisticDimension.DAY).merge(createdAt.toLocalDate().toString(), 1L, Long::sum);
+    }
+
+    private void corruptCounters() {
+        transactionTemplate.executeWithoutResult(status -> maintenanceStatisticDAO.findAll()
+                .forEach(statistic -> maintenanceStatisticDAO.increment(statistic.getDimension(), statistic.getGroupKey(), 1000)));
+        assertNotEquals(this.groupBy(), maintenanceStatistics.statistics());
+    }
+
+    private int add(int idVehicle, int idUnavailability) {
+        maintenanceService.addMaintenanceService(new RequiredMaintenance(idVehicle, idUnavailability));
+        return maintenanceDAO.findByIdVehicle(idVehicle).stream().mapToInt(Maintenance::getId).max().orElseThrow();
+    }
+
+    private void edit(int idMaintenance, int idVehicle, int idUnavailability) {
+        Maintenance request = new Maintenance();
+        request.setidVehicle(idVehicle);
+        request.setIdUnavailability(idUnavailability);
+        maintenanceService.editMaintenanceService(idMaintenance, request);
+    }
+
+    @Test
+    void countersFollowCreateEditDeleteAndArchive() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            ids.add(this.add(1000 + i, 1 + i % 3));
+        }
+        // Vehicule impair (car) vers pair (truck) : le type et le soucis changent de groupe
+        this.edit(ids.get(0), 2000, 7);
+        this.edit(ids.get(1), 2001, 3);
+        maintenanceService.deleteMaintenanceService(ids.get(2));
+        maintenanceService.deleteMaintenanceService(ids.get(3));
+        maintenanceService.changeStatusService(ids.get(4), MaintenanceStatus.IN_PROGRESS);
+        maintenanceService.changeStatusService(ids.get(4), MaintenanceStatus.COMPLETED);
+        maintenanceArchiver.archiveCompleted();
+
+        assertFalse(maintenanceArchiveDAO.findAll().isEmpty());
+        assertEquals(this.groupBy(), maintenanceStatistics.statistics());
+    }
+
+    @Test
+    void concurrentDeletesDecrementOnce() throws Exception {
+        int id = this.add(3001, 5);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger deleted = new AtomicInteger();
+        List<Future<?>> deletes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            deletes.add(executor.submit(() -> {
+                start.await();
+                try {
+                    maintenanceService.deleteMaintenanceService(id);
+                    deleted.incrementAndGet();
+                } catch (RuntimeException e) {
+                    // Maintenance déjà supprimée par un autre appel
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> delete : deletes) {
+            delete.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, deleted.get());
+        assertEquals(this.groupBy(), maintenanceStatistics.statistics());
+    }
+
+    @Test
+    void statusChangeDuringAnEditKeepsTheEdit() throws Exception {
+        int id = this.add(3101, 6);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        // La modification tient la ligne pendant que le changement de statut démarre, puis valide avant lui
+        transactionTemplate.executeWithoutResult(transaction -> {
+            maintenanceDAO.findForUpdate(id).orElseThrow();
+            Future<?> status = executor.submit(() -> maintenanceService.changeStatusService(id, MaintenanceStatus.IN_PROGRESS));
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertFalse(status.isDone());
+            // Vehicule impair (car) vers pair (truck) : la modification change le groupe du type
+            this.edit(id, 3200, 7);
+        });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Maintenance maintenance = maintenanceDAO.findById(id).getFirst();
+        assertEquals(3200, maintenance.getidVehicle());
+        assertEquals("truck", maintenance.getVehicleType());
+        assertEquals(7, maintenance.getIdUnavailability());
+        assertEquals(MaintenanceStatus.IN_PROGRESS, maintenance.getStatus());
+        assertEquals(this.groupBy(), maintenanceStatistics.statistics());
+    }
+
+    @Test
+    void rebuildRestoresCountersFromTheTables() {
+        this.add(4001, 8);
+        this.add(4002, 9);
+        this.corruptCounters();
+
+        maintenanceStatistics.rebuild();
+
+        assertEquals(this.groupBy(), maintenanceStatistics.statistics());
+    }
+
+    @Test
+    void rebuildDuringArchivingNeverCountsARowTwice() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            int id = this.add(4600 + i, 20 + i % 3);
+            maintenanceService.changeStatusService(id, MaintenanceStatus.COMPLETED);
+        }
+        // L'archivage ne change aucun total : chaque recalcul doit retrouver les mêmes compteurs
+        Map<StatisticDimension, Map<String, Long>> expected = this.groupBy();
+        MaintenanceArchiver smallBatches = new MaintenanceArchiver(maintenanceDAO, maintenanceArchiveDAO, invalidationBus, transactionTemplate, 2, 1000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> archive = executor.submit(smallBatches::archiveCompleted);
+        int rebuilds = 0;
+        while (!archive.isDone()) {
+            maintenanceStatistics.rebuild();
+            rebuilds++;
+            assertEquals(expected, maintenanceStatistics.statistics(), "after rebuild " + rebuilds);
+        }
+        archive.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertTrue(rebuilds > 1, "rebuild must run while rows are archived");
+        assertTrue(maintenanceDAO.findAll().stream().noneMatch(m -> m.getStatus() == MaintenanceStatus.COMPLETED));
+    }
+
+    @Test
+    void rebuildDuringConcurrentWritesKeepsCountersExact() throws Exception {
+        this.add(4500, 10);
+        this.corruptCounters();
+        ExecutorService executor = Executors.newFixedThreadPool(7);
+        List<Future<?>> writes = new ArrayList<>();
+        for (int writer = 0; writer < 5; writer++) {
+            int base = 5000 + writer * 100;
+            writes.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    int id = this.add(base + i, 10 + i % 4);
+                    if (i % 3 == 0) {
+                        this.edit(id, base + i + 1, 10 + (i + 1) % 4);
+                    } else if (i % 3 == 1) {
+                        maintenanceService.deleteMaintenanceService(id);
+                    } else {
+                        maintenanceService.changeStatusService(id, MaintenanceStatus.COMPLETED);
+                    }
+                }
+                return null;
+            }));
+        }
+        // L'archivage déplace des lignes entre les deux tables pendant les recalculs
+        Future<?> archive = executor.submit(() -> {
+            while (!writes.stream().allMatch(Future::isDone)) {
+                maintenanceArchiver.archiveCompleted();
+            }
+            maintenanceArchiver.archiveCompleted();
+            return null;
+        });
+        AtomicInteger rebuilds = new AtomicInteger();
+        Future<?> rebuild = executor.submit(() -> {
+            while (!writes.stream().allMatch(Future::isDone)) {
+                maintenanceStatistics.rebuild();
+                rebuilds.incrementAndGet();
+            }
+            return null;
+        });
+        for (Future<?> write : writes) {
+            write.get(60, TimeUnit.SECONDS);
+        }
+        rebuild.get(60, TimeUnit.SECONDS);
+        archive.get(60, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertTrue(rebuilds.get() > 1, "rebuild must run while writes are in progress");
+        assertFalse(maintenanceArchiveDAO.findAll().isEmpty());
+
+        // Le dernier rebuild a pu se terminer avant la fin des écritures : les compteurs doivent être exacts sans en relancer un
+        assertEquals(this.groupBy(), maintenanceStatistics.statistics());
+    }
+}
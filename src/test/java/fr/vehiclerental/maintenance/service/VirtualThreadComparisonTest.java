@@ -0,0 +1,80 @@
+package fr.vehiclerental.maintenance.service;
+
+import fr.vehiclerental.maintenance.DownstreamStub;
+import fr.vehiclerental.maintenance.config.ThreadingConfig;
+import fr.vehiclerental.maintenance.entity.RequiredMaintenance;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compare le mode threads plateforme (pool Tomcat de 200 + pool downstream de 32) au mode virtual threads
+ * sur des ajouts de maintenance dont chaque appel aux autres api prend 100 ms.
+ * Benchmark dépendant de la machine : il n'affiche que ses mesures et ne tourne qu'avec -Dbenchmark=true.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VirtualThreadComparisonTest {
+    private static final int REQUESTS = 300;
+    private static final long DOWNSTREAM_LATENCY_MS = 100;
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    record Result(String mode, long elapsedMillis, double throughput, int peakThreads, long heapUsedMb) {
+    }
+
+    private Result run(boolean virtualThreads, DownstreamStub stub) throws Exception {
+        ExecutorService downstreamExecutor = new ThreadingConfig().downstreamExecutor(virtualThreads, 32);
+        ExecutorService requestExecutor = virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        MaintenanceService service = DownstreamCallsTest.serviceFor(stub, downstreamExecutor);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.gc();
+        threads.resetPeakThreadCount();
+        Runtime runtime = Runtime.getRuntime();
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> requests = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                int idVehicle = i + 1;
+                requests.add(requestExecutor.submit(() -> service.addMaintenanceService(new RequiredMaintenance(idVehicle, 1))));
+            }
+            long heapUsed = 0;
+            for (Future<?> request : requests) {
+                heapUsed = Math.max(heapUsed, runtime.totalMemory() - runtime.freeMemory());
+                request.get();
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+            return new Result(virtualThreads ? "virtual" : "platform", elapsedMillis,
+                    REQUESTS * 1000.0 / elapsedMillis, threads.getPeakThreadCount(), heapUsed / (1024 * 1024));
+        } finally {
+            requestExecutor.shutdownNow();
+            downstreamExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void comparePlatformAndVirtualThreads() throws Exception {
+        try (DownstreamStub stub = new DownstreamStub().delayAll(DOWNSTREAM_LATENCY_MS)) {
+            // Chauffe : connexions, classes et JIT
+            run(false, stub);
+            run(true, stub);
+
+            Result platform = run(false, stub);
+            Result virtual = run(true, stub);
+            for (Result result : List.of(platform, virtual)) {
+                log.info("{} threads: {} requests in {} ms ({} req/s), peak live threads {}, peak heap used {} MB",
+                        result.mode(), REQUESTS, result.elapsedMillis(), String.format("%.0f", result.throughput()),
+                        result.peakThreads(), result.heapUsedMb());
+            }
+        }
+    }
+}